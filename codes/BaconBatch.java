@@ -0,0 +1,232 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kevin Bacon game in batch mode: a script of game commands, one per line, from a file or standard input, with the
+ * answers written in script order through a buffered writer, as text or as JSON lines.
+ * The script is read in chunks of CHUNK commands. Following the u commands of a chunk in order gives the center
+ * each command runs at, and the commands are grouped by that center: a group's tree is fetched from the shared
+ * cache once, then its commands run on a thread pool in slices, each slice a GameSession at the group's center.
+ * While one chunk runs the next is read, and a chunk's answers are written once all of them are in.
+ * The graph is shared and read-only, so + and - are refused as on the BaconServer; "q" ends the script.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class BaconBatch {
+    public static final int CHUNK = 4096; // commands planned and run together
+    public static final int SLICE = 256;  // most commands of one group run by one task
+
+    private final IndexedGraph<String> graph;                         // shared by every slice
+    private final SeparationEngine<String, Set<String>> separations;  // shared by every slice
+    private final TreeCache<String> trees;                            // shared by every slice
+    private final DegreeIndex<String> degrees;                        // shared by every slice
+    private final ComponentIndex<String> components;                  // shared by every slice
+    private final NameIndex names;                                    // shared by every slice
+    private final GraphAnalytics<String> analytics;                   // shared by every slice
+    private final boolean json;                                       // write JSON lines instead of text
+    private String center;                                            // center after the commands planned so far
+    private int lineNumber;                                           // script lines read so far
+    private boolean quit;                                             // the script said q or ended
+
+    /**
+     * Create a batch runner over a built graph
+     * @param graph the graph, which must not change while the script runs
+     * @param center center the script starts at
+     * @param json true to write one JSON object per command instead of its text
+     */
+    public BaconBatch(IndexedGraph<String> graph, String center, boolean json) {
+        this.graph = graph;
+        this.trees = new TreeCache<String>(graph, TreeCache.DEFAULT_BUDGET);
+        this.separations = new SeparationEngine<String, Set<String>>(graph, trees);
+        this.degrees = new DegreeIndex<String>(graph);
+        this.components = new ComponentIndex<String>(graph);
+        this.names = new NameIndex(graph.vertices(), BaconGame.actorsMap);
+        this.analytics = new GraphAnalytics<String>(graph, components);
+        this.center = center;
+        this.json = json;
+        Metrics.watch(() -> graph, () -> trees);
+    }
+
+    /**
+     * Run a script to its end or its q command
+     * @param in the script
+     * @param out where the answers go; flushed, not closed
+     * @param threads number of threads running commands
+     * @return number of commands run
+     * @throws IOException if the script cannot be read or the answers cannot be written
+     */
+    public long run(BufferedReader in, Writer out, int threads) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long commands = 0;
+        try {
+            Chunk running = null;
+            while (!quit) {
+                Chunk next = plan(in);
+                next.start(pool);
+                if (running != null) {
+                    running.write(out);
+                }
+                running = next;
+                commands += next.size();
+            }
+            running.write(out);
+            out.flush();
+        }
+        finally {
+            pool.shutdown();
+        }
+        return commands;
+    }
+
+    /**
+     * Read the next chunk of the script and give each command the center it runs at
+     * @param in the script
+     * @return the chunk, empty at the end of the script
+     */
+    private Chunk plan(BufferedReader in) throws IOException {
+        Chunk chunk = new Chunk();
+        String line;
+        while (chunk.size() < CHUNK && (line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty()) continue;
+            if (line.equals("q")) {
+                quit = true;
+                return chunk;
+            }
+            boolean switched = false;
+            if (line.charAt(0) == 'u') { // the same edge cases as GameSession: only a new actor in the graph moves the center
+                String actor = line.length() > 2 ? line.substring(2) : "";
+                String name = names.resolve(actor);
+                actor = name != null ? name : actor;
+                if (graph.hasVertex(actor) && !actor.equals(center)) {
+                    center = actor;
+                    switched = true;
+                }
+            }
+            chunk.add(lineNumber, line, center, switched);
+        }
+        quit = chunk.size() < CHUNK;
+        return chunk;
+    }
+
+    /**
+     * Commands read together, grouped by the center they run at
+     */
+    private class Chunk {
+        private final List<Integer> lines = new ArrayList<Integer>();     // command --> script line number
+        private final List<String> commands = new ArrayList<String>();    // command --> text
+        private final List<String> centers = new ArrayList<String>();     // command --> center it runs at
+        private final BitSet switched = new BitSet();                     // commands that moved the center
+        private final Map<String, List<Integer>> groups = new LinkedHashMap<String, List<Integer>>(); // center --> its commands
+        private String[] answers;                                         // command --> what it printed
+        private CompletableFuture<Void> done;                             // every slice has run
+
+        int size() {
+            return commands.size();
+        }
+
+        void add(int line, String command, String at, boolean moved) {
+            groups.computeIfAbsent(at, c -> new ArrayList<Integer>()).add(commands.size());
+            switched.set(commands.size(), moved);
+            lines.add(line);
+            commands.add(command);
+            centers.add(at);
+        }
+
+        /**
+         * Fetch each group's tree once, then run the group's slices over it
+         */
+        void start(ExecutorService pool) {
+            answers = new String[commands.size()];
+            List<CompletableFuture<Void>> slices = new ArrayList<CompletableFuture<Void>>();
+            for (Map.Entry<String, List<Integer>> group : groups.entrySet()) {
+                String at = group.getKey();
+                List<Integer> members = group.getValue();
+                CompletableFuture<ShortestPathTree<String>> tree = CompletableFuture.supplyAsync(
+                        () -> graph.hasVertex(at) ? trees.get(at) : new ShortestPathTree<String>(graph), pool);
+                for (int from = 0; from < members.size(); from += SLICE) {
+                    List<Integer> slice = members.subList(from, Math.min(from + SLICE, members.size()));
+                    slices.add(tree.thenAcceptAsync(t -> run(at, t, slice), pool));
+                }
+            }
+            done = CompletableFuture.allOf(slices.toArray(new CompletableFuture<?>[0]));
+        }
+
+        /**
+         * Run a slice of one group in a session at the group's center, over the tree fetched for the group; a command
+         * that moved the center answers with the summary of the center it moved to
+         */
+        private void run(String at, ShortestPathTree<String> tree, List<Integer> slice) {
+            GameSession session = new GameSession(graph, separations, trees, degrees, components, names, analytics, at,
+                    tree);
+            for (int i : slice) {
+                answers[i] = switched.get(i) ? session.summary() : session.execute(commands.get(i));
+            }
+        }
+
+        /**
+         * Wait for every answer and write them in script order
+         */
+        void write(Writer out) throws IOException {
+            done.join();
+            for (int i = 0; i < answers.length; i++) {
+                if (json) {
+                    out.write("{\"line\":" + lines.get(i) + ",\"command\":" + quote(commands.get(i)) + ",\"center\":"
+                            + quote(centers.get(i)) + ",\"output\":" + quote(answers[i]) + "}\n");
+                }
+                else {
+                    out.write(answers[i]);
+                    out.write("\n\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * @param s a string
+     * @return s as a JSON string literal
+     */
+    static String quote(String s) {
+        StringBuilder quoted = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') quoted.append('\\').append(c);
+            else if (c == '\n') quoted.append("\\n");
+            else if (c == '\r') quoted.append("\\r");
+            else if (c == '\t') quoted.append("\\t");
+            else if (c < 0x20) quoted.append(String.format("\\u%04x", (int) c));
+            else quoted.append(c);
+        }
+        return quoted.append('"').toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        // usage: BaconBatch [script] [--json] [--threads <n>] [--bipartite]; without a script, commands come from standard input
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        BaconGame.bipartite = options.remove("--bipartite");
+        boolean json = options.remove("--json");
+        int threads = Runtime.getRuntime().availableProcessors();
+        int at = options.indexOf("--threads");
+        if (at >= 0 && at + 1 < options.size()) {
+            threads = Integer.parseInt(options.remove(at + 1));
+            options.remove(at);
+        }
+        BaconGame.loadGraph("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+        BaconBatch batch = new BaconBatch(BaconGame.indexedGraph(), BaconGame.currentCenter, json);
+        long started = System.nanoTime();
+        long commands;
+        try (BufferedReader in = options.isEmpty()
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(options.get(0)), StandardCharsets.UTF_8)) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+            commands = batch.run(in, out, threads);
+        }
+        System.err.printf("Ran %d commands on %d threads in %.1f ms%n", commands, threads, (System.nanoTime() - started) / 1e6);
+    }
+}
@@ -0,0 +1,161 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Repeatable timings of the game's operations: loading, building, BFS, paths and the three rankings.
+ * Each operation is warmed up, then timed over a fixed number of iterations on inputs/*.txt and on a synthetic
+ * scale-free data set of a chosen size, so a change to the graph engine shows up as a change in these numbers.
+ * Every result is folded into a checksum that is printed, so the JIT cannot drop the work being timed.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class BaconBenchmark {
+    private static long sink;      // results folded together so that no timed work is dead code
+    private final int warmup;      // untimed runs of each operation
+    private final int iterations;  // timed runs of each operation
+
+    public BaconBenchmark(int warmup, int iterations) {
+        this.warmup = warmup;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Time every operation on one data set and print a row per operation
+     * @param name name of the data set
+     * @param actorPath location of the actors file
+     * @param moviePath location of the movies file
+     * @param actorsMoviePath location of the actor and movie file
+     * @throws IOException if a file cannot be read
+     */
+    public void run(String name, String actorPath, String moviePath, String actorsMoviePath) throws IOException {
+        System.out.println("\n" + name);
+        System.out.printf("%-26s %12s %12s%n", "operation", "mean ms/op", "min ms/op");
+
+        time("fileReader", () -> {
+            resetGame();
+            BaconGame.fileReader(actorPath, moviePath, actorsMoviePath);
+            sink += BaconGame.movieActors.size();
+        });
+        time("buildGraph", () -> {
+            BaconGame.baconGraph = new AdjacencyMapGraph<String, Set<String>>();
+            sink += BaconGame.buildGraph().numVertices();
+        });
+        Graph<String, Set<String>> adjacencyGraph = BaconGame.baconGraph;
+        time("loadGraph (BulkLoader)", () -> {
+            resetGame();
+            sink += BaconGame.loadGraph(actorPath, moviePath, actorsMoviePath).numVertices();
+        });
+
+        IndexedGraph<String> graph = BaconGame.indexedGraph();
+        Random random = new Random(1);
+        List<String> actors = new ArrayList<String>();
+        for (String actor : graph.vertices()) {
+            actors.add(actor);
+        }
+        String center = graph.hasVertex(BaconGame.currentCenter) ? BaconGame.currentCenter : actors.get(0);
+
+        time("BFS (adjacency map tree)", () -> {
+            sink += GraphLibrary.BFS(adjacencyGraph, actors.get(random.nextInt(actors.size()))).numVertices();
+        });
+        ShortestPathTree<String> tree = new ShortestPathTree<String>(graph);
+        time("BFS (indexed tree)", () -> {
+            sink += GraphLibrary.BFS(graph, actors.get(random.nextInt(actors.size())), tree).reachedCount();
+        });
+
+        BaconGame.currentCenter = center;
+        BaconGame.shortestPathTree = GraphLibrary.BFS(graph, center, null);
+        time("getPath x1000", () -> {
+            for (int i = 0; i < 1000; i++) {
+                sink += BaconGame.shortestPathTree.getPath(actors.get(random.nextInt(actors.size()))).size();
+            }
+        });
+        time("shortestPath x1000", () -> {
+            for (int i = 0; i < 1000; i++) {
+                sink += BaconGame.shortestPath(actors.get(random.nextInt(actors.size())), actors.get(random.nextInt(actors.size()))).size();
+            }
+        });
+        time("averageSeparation", () -> {
+            sink += (long) GraphLibrary.averageSeparation(BaconGame.shortestPathTree, center);
+        });
+        NameIndex names = new NameIndex(graph.vertices(), BaconGame.actorsMap);
+        time("NameIndex suggest x100", () -> {
+            for (int i = 0; i < 100; i++) {
+                String actor = actors.get(random.nextInt(actors.size()));
+                sink += names.suggest(actor.substring(1), 5).size() + names.complete(actor.substring(0, Math.min(3, actor.length())), 10).size();
+            }
+        });
+        time("sortedByDegree", () -> {
+            BaconGame.degreeIndex = null; // include building the index
+            sink += BaconGame.sortedByDegree(1, 50).size();
+        });
+        time("sortedBySeparation", () -> {
+            sink += BaconGame.sortedBySeparation(2, 4).size();
+        });
+        time("sortedByUniversalCenter", () -> {
+            BaconGame.separationEngine = null; // rank from scratch, not from the cached averages
+            BaconGame.treeCache = null;
+            sink += BaconGame.sortedByUniversalCenter(10).size();
+        });
+    }
+
+    /**
+     * Warm an operation up, then time it and print its mean and fastest run
+     */
+    private void time(String operation, Operation op) throws IOException {
+        for (int i = 0; i < warmup; i++) {
+            op.run();
+        }
+        long total = 0, fastest = Long.MAX_VALUE;
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            op.run();
+            long elapsed = System.nanoTime() - start;
+            total += elapsed;
+            fastest = Math.min(fastest, elapsed);
+        }
+        System.out.printf("%-26s %12.3f %12.3f%n", operation, total / 1e6 / iterations, fastest / 1e6);
+    }
+
+    /**
+     * Forget everything BaconGame has loaded or computed
+     */
+    private static void resetGame() {
+        BaconGame.actorsMap = new HashMap<String, String>();
+        BaconGame.moviesMap = new HashMap<String, String>();
+        BaconGame.movieActors = new HashMap<String, Set<String>>();
+        BaconGame.baconGraph = new AdjacencyMapGraph<String, Set<String>>();
+        BaconGame.shortestPathTree = null;
+        BaconGame.separationEngine = null;
+        BaconGame.treeCache = null;
+        BaconGame.degreeIndex = null;
+        BaconGame.components = null;
+        BaconGame.names = null;
+        BaconGame.pathSearch = null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        // usage: BaconBenchmark [synthetic actors, 0 to skip] [iterations] [warmup]
+        int actors = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        BaconBenchmark benchmark = new BaconBenchmark(warmup, iterations);
+        benchmark.run("inputs", "inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+        if (actors > 0) {
+            Path dir = Files.createTempDirectory("bacon-benchmark");
+            String[] paths = new DatasetGenerator(actors, actors * 3 / 4, 42).write(dir);
+            benchmark.run("synthetic scale-free, " + actors + " actors", paths[0], paths[1], paths[2]);
+            for (String path : paths) Files.delete(Path.of(path));
+            Files.delete(dir);
+        }
+        System.out.println("\nchecksum " + sink);
+    }
+
+    /**
+     * A timed operation; it may read files
+     */
+    private interface Operation {
+        void run() throws IOException;
+    }
+}
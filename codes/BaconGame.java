@@ -3,6 +3,8 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Program that utilizes the methods in Graph library to add functionality to the Kevin Bacon game
@@ -15,9 +17,16 @@ public class BaconGame {
     public static Map<String, String> actorsMap = new HashMap<String, String>(); // actor id --> actor name
     public static Map<String, String> moviesMap = new HashMap<String, String>(); // movie id --> movie name
     public static Map<String, Set<String>> movieActors = new HashMap<String, Set<String>>(); // movie name --> set of actors
-    public static Graph<String, Set<String>> baconGraph = new AdjacencyMapGraph<>(); // all actors with set of movies as edges
-    public static BufferedReader input;
-    public static Graph<String, Set<String>> shortestPathData; // graph from bfs
+    public static Graph<String, Set<String>> baconGraph = new AdjacencyMapGraph<>(); // all actors with set of movies as edges, frozen to a CSRGraph once built and thawed to a DynamicGraph once updated
+    public static ShortestPathTree<String> shortestPathTree; // shortest path tree of the current center, from the tree cache
+    public static SeparationEngine<String, Set<String>> separationEngine; // cached average separation of every actor
+    public static DegreeIndex<String> degreeIndex; // actors by number of co-stars, for d <low>,<high>
+    public static TreeCache<String> treeCache; // trees of recent centers, so going back to one skips the BFS
+    public static BidirectionalSearch<String> pathSearch; // reusable point-to-point search behind shortestPath
+    public static ComponentIndex<String> components; // connected components, for reachability without a search
+    public static GraphAnalytics<String> analytics; // eccentricities and sampled closeness, for e and c <#>,<samples>
+    public static NameIndex names; // actor names, for resolving arguments, completing them and suggesting close ones
+    public static boolean bipartite = false; // load actors and movies as a bipartite graph instead of co-star cliques
 
     public BaconGame(){
 
@@ -31,6 +40,10 @@ public class BaconGame {
      * @throws IOException
      */
     public static void fileReader(String actorPath, String moviePath, String actorsMoviePath) throws IOException {
+        long started = Metrics.start();
+        BufferedReader input = null; // local, so that concurrent readers do not share it
+        if (actorsMap instanceof BulkLoader.IdMap) actorsMap = new HashMap<String, String>(actorsMap); // loadGraph's maps are read-only
+        if (moviesMap instanceof BulkLoader.IdMap) moviesMap = new HashMap<String, String>(moviesMap);
         // Open the file, if possible
         // read actors file
         try {
@@ -119,30 +132,204 @@ public class BaconGame {
                 System.err.println("Cannot close file.\n" + e.getMessage());
             }
         }
+        Metrics.record("phase fileReader", started);
     }
 
     /**
-     * Builds the graph from the file read
+     * Loads the three files with the memory-mapped BulkLoader and builds the compact graph straight from the credits,
+     * skipping the movieActors map and the intermediate adjacency map graph.
+     * In bipartite mode the actor-movie graph is kept instead, which stays linear in the credits for large casts.
+     * @param actorPath location of the actors file
+     * @param moviePath location of the movies file
+     * @param actorsMoviePath location of the actor and movie file
+     * @return the graph with all the actors
+     * @throws IOException
+     */
+    public static Graph<String, Set<String>> loadGraph(String actorPath, String moviePath, String actorsMoviePath) throws IOException {
+        long started = Metrics.start();
+        BulkLoader loader = BulkLoader.load(actorPath, moviePath, actorsMoviePath, Runtime.getRuntime().availableProcessors());
+        actorsMap = loader.actorsMap();
+        moviesMap = loader.moviesMap();
+        baconGraph = bipartite ? loader.bipartiteGraph() : loader.graph();
+        Metrics.record("phase loadGraph", started);
+        return baconGraph;
+    }
+
+    /**
+     * Restores the graph from a binary snapshot if one exists for the current files; otherwise loads the files
+     * with loadGraph and writes a new snapshot for the next start
+     * @param snapshotPath location of the snapshot
+     * @param actorPath location of the actors file
+     * @param moviePath location of the movies file
+     * @param actorsMoviePath location of the actor and movie file
+     * @return the graph with all the actors
+     * @throws IOException
+     */
+    public static Graph<String, Set<String>> restoreGraph(String snapshotPath, String actorPath, String moviePath, String actorsMoviePath) throws IOException {
+        long started = Metrics.start();
+        long fingerprint = GraphSnapshot.fingerprint(actorPath, moviePath, actorsMoviePath);
+        GraphSnapshot snapshot = GraphSnapshot.load(snapshotPath, fingerprint);
+        if (snapshot != null) {
+            baconGraph = snapshot.graph();
+            actorsMap = snapshot.actorsMap(); // so "#<id>" arguments resolve as after loadGraph
+            moviesMap = snapshot.moviesMap();
+            Metrics.record("phase restoreGraph", started);
+            return baconGraph;
+        }
+        loadGraph(actorPath, moviePath, actorsMoviePath);
+        try {
+            GraphSnapshot.save(compactGraph(), actorsMap, moviesMap, snapshotPath, fingerprint);
+        }
+        catch (IOException e) {
+            System.err.println("Cannot write snapshot.\n" + e.getMessage());
+        }
+        return baconGraph;
+    }
+
+    /**
+     * Builds the graph from the file read, on every core
      * @return the graph with all the actors
      */
     public static Graph<String, Set<String>> buildGraph() {
+        long started = Metrics.start();
+        buildGraph(Runtime.getRuntime().availableProcessors());
+        Metrics.record("phase buildGraph", started);
+        return baconGraph;
+    }
+
+    /**
+     * Builds the graph from the file read.
+     * With more than one thread the movies are split into slices on a fork-join pool; each slice expands its casts
+     * into a private actor --> co-star --> movies map, the slices are merged in a fixed order by actor stripe, also in
+     * parallel, and the merged edges are inserted into baconGraph. The result is the same as the serial build.
+     * Every title is numbered before the slices start, so the slices only read the shared title table.
+     * @param threads number of threads, 1 for the serial build
+     * @return the graph with all the actors
+     */
+    public static Graph<String, Set<String>> buildGraph(int threads) {
+        if (threads <= 1) {
+            return buildGraphSerial();
+        }
+        for (String actorID : actorsMap.keySet()) {
+            baconGraph.insertVertex(actorsMap.get(actorID));
+        }
+        List<Map.Entry<String, Set<String>>> movies = new ArrayList<Map.Entry<String, Set<String>>>(movieActors.entrySet());
+        MovieSet.Titles titles = new MovieSet.Titles(); // shared by every label, numbered in the serial build's order
+        for (Map.Entry<String, Set<String>> movie : movies) {
+            titles.intern(movie.getKey());
+        }
+        int slices = Math.min(movies.size(), threads * 4), stripes = threads * 4;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // expand: slice --> actor --> co-star --> movies they share in that slice
+            List<ForkJoinTask<Map<String, Map<String, MovieSet>>>> expanded = new ArrayList<ForkJoinTask<Map<String, Map<String, MovieSet>>>>();
+            for (int i = 0; i < slices; i++) {
+                List<Map.Entry<String, Set<String>>> slice = movies.subList(i * movies.size() / slices, (i + 1) * movies.size() / slices);
+                expanded.add(pool.submit(() -> coStarEdges(slice, titles)));
+            }
+            List<Map<String, Map<String, MovieSet>>> parts = new ArrayList<Map<String, Map<String, MovieSet>>>();
+            for (ForkJoinTask<Map<String, Map<String, MovieSet>>> task : expanded) {
+                parts.add(task.join());
+            }
+            // merge: each stripe of actors gathers its edges from every slice, in slice order
+            List<ForkJoinTask<Map<String, Map<String, MovieSet>>>> merged = new ArrayList<ForkJoinTask<Map<String, Map<String, MovieSet>>>>();
+            for (int i = 0; i < stripes; i++) {
+                int stripe = i;
+                merged.add(pool.submit(() -> mergeStripe(parts, stripe, stripes)));
+            }
+            // insert: the graph's maps are not thread-safe, so this last pass is serial
+            for (ForkJoinTask<Map<String, Map<String, MovieSet>>> task : merged) {
+                for (Map.Entry<String, Map<String, MovieSet>> actor : task.join().entrySet()) {
+                    for (Map.Entry<String, MovieSet> coStar : actor.getValue().entrySet()) {
+                        Set<String> label = baconGraph.getLabel(actor.getKey(), coStar.getKey());
+                        if (label == null) {
+                            baconGraph.insertUndirected(actor.getKey(), coStar.getKey(), coStar.getValue()); // one set shared by both directions
+                        } else {
+                            label.addAll(coStar.getValue());
+                        }
+                    }
+                }
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+        return baconGraph;
+    }
+
+    /**
+     * Expand a slice of movies into co-star edges, each pair once under the actor whose name sorts first
+     * @param movies movie name --> set of actors
+     * @param titles title table with every movie already in it
+     * @return actor --> co-star --> movies they share among these
+     */
+    private static Map<String, Map<String, MovieSet>> coStarEdges(List<Map.Entry<String, Set<String>>> movies, MovieSet.Titles titles) {
+        Map<String, Map<String, MovieSet>> edges = new HashMap<String, Map<String, MovieSet>>();
+        for (Map.Entry<String, Set<String>> entry : movies) {
+            int movie = titles.idOf(entry.getKey());
+            for (String actor : entry.getValue()) {
+                Map<String, MovieSet> coStars = null;
+                for (String coStar : entry.getValue()) {
+                    if (actor.compareTo(coStar) < 0) {
+                        if (coStars == null) coStars = edges.computeIfAbsent(actor, a -> new HashMap<String, MovieSet>());
+                        coStars.computeIfAbsent(coStar, c -> new MovieSet(titles)).addId(movie);
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Merge the edges of the actors in one stripe from every slice, in slice order
+     * @param parts edges of every slice
+     * @param stripe this stripe
+     * @param stripes number of stripes
+     * @return actor --> co-star --> movies, for the actors of the stripe
+     */
+    private static Map<String, Map<String, MovieSet>> mergeStripe(List<Map<String, Map<String, MovieSet>>> parts, int stripe, int stripes) {
+        Map<String, Map<String, MovieSet>> edges = new HashMap<String, Map<String, MovieSet>>();
+        for (Map<String, Map<String, MovieSet>> part : parts) {
+            for (Map.Entry<String, Map<String, MovieSet>> actor : part.entrySet()) {
+                if (Math.floorMod(actor.getKey().hashCode(), stripes) != stripe) continue;
+                Map<String, MovieSet> coStars = edges.computeIfAbsent(actor.getKey(), a -> new HashMap<String, MovieSet>());
+                for (Map.Entry<String, MovieSet> coStar : actor.getValue().entrySet()) {
+                    MovieSet shared = coStars.get(coStar.getKey());
+                    if (shared == null) {
+                        coStars.put(coStar.getKey(), coStar.getValue());
+                    } else {
+                        shared.addAll(coStar.getValue());
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Builds the graph from the file read, one movie after another.
+     * Each co-star pair gets one MovieSet label, shared by both directions, over one title table for the graph.
+     * @return the graph with all the actors
+     */
+    public static Graph<String, Set<String>> buildGraphSerial() {
         // create vertex for all actors
         for (String actorID : actorsMap.keySet()) {
             baconGraph.insertVertex(actorsMap.get(actorID));
         }
 
         // create the edges
+        MovieSet.Titles titles = new MovieSet.Titles(); // shared by every label
         for (Map.Entry<String, Set<String>> entry : movieActors.entrySet()) { // movie name --> set of actors
-            for (String actor : entry.getValue()){ // loop over all the actors of the movie
-                for (String coStar : entry.getValue()){ // loop over all the actors of the movie
-                    if (!actor.equals(coStar)){ // make sure the actors aren't the same
-                        if (baconGraph.hasEdge(actor, coStar)) {
-                            baconGraph.getLabel(actor, coStar).add(entry.getKey()); // add movie to the set of movies the actors co-starred
-                        } else {
-                            baconGraph.insertDirected(actor, coStar, new HashSet<>()); // create empty set
-                            baconGraph.getLabel(actor, coStar).add(entry.getKey()); // add first movie
-                        }
+            int movie = titles.intern(entry.getKey());
+            String[] cast = entry.getValue().toArray(new String[0]);
+            for (int i = 0; i < cast.length; i++) { // loop over every pair of actors of the movie once
+                for (int j = i + 1; j < cast.length; j++) {
+                    MovieSet movies = (MovieSet) baconGraph.getLabel(cast[i], cast[j]);
+                    if (movies == null) {
+                        movies = new MovieSet(titles); // create empty set
+                        baconGraph.insertUndirected(cast[i], cast[j], movies); // one set shared by both directions
                     }
+                    movies.addId(movie); // add movie to the set of movies the actors co-starred
                 }
             }
         }
@@ -150,26 +337,177 @@ public class BaconGame {
     }
 
     /**
-     * Method to change the center of the universe
-     * @param actor the actor's name
-     * @param bfsGraph the created bfs Graph
-     * @return A string showing the center, connected actors, and avg separation
+     * The bacon graph in compact form, freezing it the first time it is needed
+     * @return the frozen graph
+     */
+    public static CSRGraph<String> compactGraph() {
+        if (!(baconGraph instanceof CSRGraph)) {
+            long started = Metrics.start();
+            baconGraph = CSRGraph.freeze(baconGraph);
+            Metrics.record("phase freeze", started);
+        }
+        return (CSRGraph<String>) baconGraph;
+    }
+
+    /**
+     * The bacon graph with dense actor ids, as a BipartiteGraph in bipartite mode and a CSRGraph otherwise
+     * @return the indexed graph
+     */
+    public static IndexedGraph<String> indexedGraph() {
+        if (baconGraph instanceof IndexedGraph) {
+            return (IndexedGraph<String>) baconGraph;
+        }
+        return compactGraph();
+    }
+
+    /**
+     * The bacon graph in updatable form, thawing it the first time a credit changes.
+     * The center's tree is rebuilt once over the thawed graph and only repaired from then on.
+     * Thawing re-adds every credit, so it costs the sum of the squared cast sizes, and the game stays on the slower
+     * adjacency maps until it restarts.
+     * @return the updatable graph
+     */
+    public static DynamicGraph<String> dynamicGraph() {
+        if (!(baconGraph instanceof DynamicGraph)) {
+            baconGraph = DynamicGraph.thaw(indexedGraph());
+            shortestPathTree = centerTree(currentCenter);
+            separationEngine = null;
+        }
+        return (DynamicGraph<String>) baconGraph;
+    }
+
+    /**
+     * Credit an actor in a movie on the live graph, repairing the center's tree instead of redoing the BFS
+     * @param movie movie title, added if it is new
+     * @param actor actor's name, added if it is new
+     * @return number of co-stars the actor was newly linked to
+     */
+    public static int addCredit(String movie, String actor) {
+        List<String> linked = dynamicGraph().addCredit(movie, actor);
+        graphChanged();
+        shortestPathTree.insertedEdges(actor, linked);
+        if (degreeIndex != null && degreeIndex.graph() == baconGraph) {
+            degreeIndex.linked(actor, linked);
+        }
+        if (components != null && components.graph() == baconGraph) {
+            components.linked(actor, linked);
+        }
+        return linked.size();
+    }
+
+    /**
+     * Withdraw an actor's credit in a movie on the live graph, repairing the center's tree instead of redoing the BFS
+     * @param movie movie title
+     * @param actor actor's name
+     * @return number of co-stars the actor is no longer linked to
+     */
+    public static int removeCredit(String movie, String actor) {
+        List<String> unlinked = dynamicGraph().removeCredit(movie, actor);
+        graphChanged();
+        shortestPathTree.removedEdges(actor, unlinked);
+        if (degreeIndex != null && degreeIndex.graph() == baconGraph) {
+            degreeIndex.unlinked(actor, unlinked);
+        }
+        if (components != null && components.graph() == baconGraph) {
+            components.unlinked(actor, unlinked);
+        }
+        return unlinked.size();
+    }
+
+    /**
+     * Drop everything computed from the old graph except the center's tree, before that tree is repaired in place.
+     * A cached tree must not change, so the center's tree leaves the cache with the rest and is not put back; the
+     * next session is handed it directly.
      */
-    public static String changeCenter(String actor, Graph<String, Set<String>> bfsGraph) {
-        currentCenter = actor;
-        return currentCenter +" is now the center of the acting universe, connected to " + connectedActors(bfsGraph) + "/9235 actors with average separation of " + averageSep(currentCenter, false);
+    private static void graphChanged() {
+        separationEngine = null; // every cached average may have changed
+        analytics = null;
+        names = null; // credits may add actors
+        treeCache().invalidate();
     }
 
     /**
-     * Shortest path from the center of the universe
+     * Whether a movie has at least one credit, read from the graph in whatever form it is in, so that asking does
+     * not thaw a frozen graph
+     * @param movie movie title
+     * @return true if some actor is credited in the movie
+     */
+    public static boolean hasMovie(String movie) {
+        if (baconGraph instanceof DynamicGraph) {
+            return ((DynamicGraph<String>) baconGraph).hasMovie(movie);
+        }
+        int[] castOffsets;
+        String[] titles;
+        if (baconGraph instanceof CSRGraph) {
+            castOffsets = ((CSRGraph<String>) baconGraph).castOffsets();
+            titles = ((CSRGraph<String>) baconGraph).movieTitles();
+        }
+        else if (baconGraph instanceof BipartiteGraph) {
+            castOffsets = ((BipartiteGraph<String>) baconGraph).castOffsets();
+            titles = ((BipartiteGraph<String>) baconGraph).movieTitles();
+        }
+        else {
+            Set<String> cast = movieActors.get(movie);
+            return cast != null && !cast.isEmpty();
+        }
+        for (int m = 0; m < titles.length; m++) {
+            if (castOffsets[m + 1] > castOffsets[m] && titles[m].equals(movie)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Credit every actor of a movie on the live graph
+     * @param movie movie title
+     * @param actors actors' names
+     * @return number of co-star pairs newly linked
+     */
+    public static int addMovie(String movie, Collection<String> actors) {
+        int linked = 0;
+        for (String actor : actors) {
+            linked += addCredit(movie, actor);
+        }
+        return linked;
+    }
+
+    /**
+     * Withdraw every credit of a movie on the live graph
+     * @param movie movie title
+     * @return number of co-star pairs no longer linked
+     */
+    public static int removeMovie(String movie) {
+        int unlinked = 0;
+        for (String actor : new ArrayList<String>(dynamicGraph().castOf(movie))) {
+            unlinked += removeCredit(movie, actor);
+        }
+        return unlinked;
+    }
+
+    /**
+     * The index of actor names, built on first use and whenever the graph changes
+     * @return the index
+     */
+    public static NameIndex names() {
+        if (names == null) {
+            names = new NameIndex(baconGraph.vertices(), actorsMap);
+        }
+        return names;
+    }
+
+    /**
+     * Shortest path between two actors, meeting in the middle from both ends
      * @param s actor's name
+     * @param t other actor's name
+     * @return the path from s to t, empty if there is none
      */
-    public static void findShortestPath(String s) {
-        List<String> path = GraphLibrary.getPath(shortestPathData, s);
-        System.out.println(s + " number is " + (path.size()-1));
-        for (int i = 0; i < path.size()-1; i++){
-            System.out.println(path.get(i) + " appeared in " + baconGraph.getLabel(path.get(i), path.get(i+1)) + " with " + path.get(i+1));
+    public static List<String> shortestPath(String s, String t) {
+        if (!components().connected(s, t)) {
+            return new ArrayList<String>(); // in different components, or not in the graph: no search needed
+        }
+        if (pathSearch == null || pathSearch.graph() != indexedGraph()) {
+            pathSearch = new BidirectionalSearch<String>(indexedGraph());
         }
+        return pathSearch.path(s, t);
     }
 
     /**
@@ -182,43 +520,56 @@ public class BaconGame {
      */
 
     public static List<String> sortedByUniversalCenter(int num) {
-        int finalNum = num;
-        class SeparationComparator implements Comparator<String> {
-            @Override
-            public int compare(String s1, String s2) {
-                if (finalNum > 0) {
-                    // top (positive value) --> low average separation
-                    return Double.compare(BaconGame.averageSep(s1, true), BaconGame.averageSep(s2, true));
-                } else {
-                    return Double.compare(BaconGame.averageSep(s2, true), BaconGame.averageSep(s1, true));
-
-                }
-            }
+        if (num > 0) {
+            // top (positive value) --> low average separation
+            return separationEngine().top(num);
         }
-        // add all actors by comparing their average separation to the pq
-        PriorityQueue<String> pq = new PriorityQueue<String>(new SeparationComparator());
-        for (String actor : baconGraph.vertices()) {
-            pq.add(actor);
+        else {
+            return separationEngine().bottom(Math.abs(num));
         }
+    }
 
-        ArrayList<String> sortedList = new ArrayList<String>();
-        // if number is negative, get its absolute value
-        if (num < 0) {
-            num = Math.abs(num);
+    /**
+     * The analytics over the bacon graph, created on first use and whenever the graph is replaced or changed
+     * @return the analytics
+     */
+    public static GraphAnalytics<String> analytics() {
+        if (analytics == null || analytics.graph() != indexedGraph()) {
+            analytics = new GraphAnalytics<String>(indexedGraph(), components());
         }
-        while (!pq.isEmpty() && num > 0) {
-            sortedList.add(pq.remove());
-            num--;
+        return analytics;
+    }
+
+    /**
+     * The cache of shortest path trees over the bacon graph, replaced whenever the graph is
+     * @return the cache
+     */
+    public static TreeCache<String> treeCache() {
+        if (treeCache == null || treeCache.graph() != indexedGraph()) {
+            treeCache = new TreeCache<String>(indexedGraph(), TreeCache.DEFAULT_BUDGET);
         }
-        return sortedList;
+        return treeCache;
     }
 
     /**
-     * infinite separation equals not connected/missing vertices
-     * @return set of vertices
+     * Shortest path tree rooted at an actor, from the tree cache when the actor was a center recently
+     * @param actor actor's name
+     * @return the tree, which must only be read; empty if the actor is not in the graph
      */
-    public static Set<String> infiniteSeparation() {
-        return GraphLibrary.missingVertices(baconGraph, shortestPathData);
+    public static ShortestPathTree<String> centerTree(String actor) {
+        ShortestPathTree<String> tree = treeCache().get(actor);
+        return tree != null ? tree : GraphLibrary.BFS(indexedGraph(), actor, null); // reports the missing actor
+    }
+
+    /**
+     * The closeness engine over the bacon graph, created on first use so that it sees the built graph
+     * @return the engine
+     */
+    public static SeparationEngine<String, Set<String>> separationEngine() {
+        if (separationEngine == null) {
+            separationEngine = new SeparationEngine<String, Set<String>>(indexedGraph(), treeCache());
+        }
+        return separationEngine;
     }
 
     /**
@@ -228,35 +579,7 @@ public class BaconGame {
      * @return a list of the actors with avg separation between the bounds
      */
     public static List<String> sortedBySeparation(int lowNum, int highNum) {
-        // store the distance from the root in a map to access the value at constant time later on
-        // map is efficient because getDegree will only be executed once
-        Map<String, Integer> separationMap = new HashMap<String, Integer>(); // actor --> separation
-        for (String actor: baconGraph.vertices()) {
-            if (shortestPathData.hasVertex(actor)) {
-                separationMap.put(actor, BaconGame.getDistance(actor));
-            }
-        }
-        class DistanceComparator implements Comparator<String> {
-            @Override
-            public int compare(String s1, String s2) {
-                // top (positive value) means low average separation
-                return separationMap.get(s1)-separationMap.get(s2);
-            }
-        }
-        // add all actors by comparing their average separation to the pq
-        PriorityQueue<String> pq = new PriorityQueue<String>(new DistanceComparator());
-        for (String actor: baconGraph.vertices()) {
-            if (shortestPathData.hasVertex(actor)){
-                if (lowNum <= separationMap.get(actor) && separationMap.get(actor) <= highNum )
-                    pq.add(actor);
-            }
-        }
-        ArrayList<String> sortedList = new ArrayList<String>();
-
-        while (!pq.isEmpty()){
-            sortedList.add(pq.remove());
-        }
-        return sortedList;
+        return GraphLibrary.sortedBySeparation(shortestPathTree, lowNum, highNum);
     }
 
     /**
@@ -265,8 +588,7 @@ public class BaconGame {
      * @return the number of people between the center and the actor
      */
     public static int getDistance(String actor){
-        List<String> path = GraphLibrary.getPath(shortestPathData, actor); // get the shortest path from the center to the actor
-        return (path.size()-1);
+        return shortestPathTree.getDistance(actor); // read straight from the tree, no path walk
     }
 
     /**
@@ -276,40 +598,40 @@ public class BaconGame {
      * @return a list of actors sorted by degree within a range
      */
     public static List<String> sortedByDegree(int lowNum, int highNum){
-        // store the degree in a map to access the degree at constant time
-        // map is efficient because getDegree will only be executed once
-        Map<String, Integer> degreeMap = new HashMap<String, Integer>(); // actor --> degree
-        for (String actor: baconGraph.vertices()) {
-            degreeMap.put(actor, baconGraph.outDegree(actor));
-        }
-        class DegreeComparator implements Comparator<String> {
-            @Override
-            public int compare(String s1, String s2) {
-                // top (positive value) means low average separation
-                return degreeMap.get(s1)-degreeMap.get(s2);
-            }
-        }
-        // add all actors by comparing their average separation to the pq
-        PriorityQueue<String> pq = new PriorityQueue<String>(new DegreeComparator());
-        for (String actor: baconGraph.vertices()) {
-            if (lowNum <= degreeMap.get(actor) && degreeMap.get(actor) <= highNum )
-                pq.add(actor);
+        return new ArrayList<String>(degreeIndex().between(lowNum, highNum));
+    }
+
+    /**
+     * The degree index over the bacon graph, built the first time it is needed and whenever the graph is replaced;
+     * credit updates keep it current
+     * @return the index
+     */
+    public static DegreeIndex<String> degreeIndex() {
+        if (degreeIndex == null || degreeIndex.graph() != indexedGraph()) {
+            degreeIndex = new DegreeIndex<String>(indexedGraph());
         }
-        ArrayList<String> sortedList = new ArrayList<String>();
+        return degreeIndex;
+    }
 
-        while (!pq.isEmpty()){
-            sortedList.add(pq.remove());
+    /**
+     * The component index over the bacon graph, built the first time it is needed and whenever the graph is replaced;
+     * credit updates keep it current
+     * @return the index
+     */
+    public static ComponentIndex<String> components() {
+        if (components == null || components.graph() != indexedGraph()) {
+            components = new ComponentIndex<String>(indexedGraph());
         }
-        return sortedList;
+        return components;
     }
 
     /**
      * Method to return the number of connected actors
-     * @param bfsGraph the bfs Graph
-     * @return num of edges in the graph
+     * @param tree the shortest path tree
+     * @return num of actors connected to the tree's root, not counting the root; -1 if the tree is empty
      */
-    public static int connectedActors(Graph<String, Set<String>> bfsGraph){
-        return bfsGraph.numEdges();
+    public static int connectedActors(ShortestPathTree<String> tree){
+        return tree.root() == null ? -1 : components().componentSize(tree.root()) - 1;
     }
 
     /**
@@ -320,128 +642,126 @@ public class BaconGame {
      */
     public static double averageSep(String actor, boolean comparator){
         if (comparator) {
-            Graph<String, Set<String>> tempGraph = GraphLibrary.BFS(baconGraph, actor);
-            return GraphLibrary.averageSeparation(tempGraph, actor);
+            return separationEngine().averageSeparation(actor);
         }
         else{
-            return GraphLibrary.averageSeparation(shortestPathData, actor);
+            return GraphLibrary.averageSeparation(shortestPathTree, actor);
         }
     }
 
     public static void main(String[] args) throws IOException {
         // test with the graph formed by the data read from movieTest.txt, actorTest.txt, and movie-actorTest.txt files
-        BaconGame.fileReader("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
-        // graph built from the files we just read
-        buildGraph();
-        shortestPathData = GraphLibrary.BFS(baconGraph, currentCenter);
+        // graph built straight from the files, or restored from the snapshot given as an argument
+        // --bipartite keeps the actor-movie graph instead; snapshots hold co-star graphs only
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        bipartite = options.remove("--bipartite");
+        Metrics.watch(() -> baconGraph, () -> treeCache);
+        Metrics.register();
+        if (!options.isEmpty() && !bipartite) {
+            restoreGraph(options.get(0), "inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+        }
+        else {
+            loadGraph("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+        }
+        shortestPathTree = centerTree(currentCenter);
         System.out.println("Commands:\n" +
-                "c <#>: list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation \n" +
-                "d <low>,<high>: list actors sorted by degree, with degree between low and high\n" +
-                "i: list actors with infinite separation from the current center \n" +
-                "p <name>: find path from <name> to current center of the universe\n" +
-                "s <low>,<high>: list actors sorted by non-infinite separation distance from the current center, with separation between low and high\n" +
+                "c <#>[,<samples>]: list top (positive number) or bottom (negative) <#> centers of the universe, sorted by average separation, estimated from <samples> BFS sources per component if given \n" +
+                "e [<name>]: eccentricity of <name> (the center by default), with the radius, diameter, center and periphery of its component\n" +
+                "d <low>,<high>[,<offset>,<limit>]: list actors sorted by degree, with degree between low and high\n" +
+                "i [<offset>,<limit>]: list actors with infinite separation from the current center \n" +
+                "n <prefix>[,<limit>]: list up to <limit> (10 by default) actors whose name starts with <prefix>\n" +
+                "p <name>[,<name>]: find path from <name> to current center of the universe, or between the two actors\n" +
+                "s <low>,<high>[,<offset>,<limit>]: list actors sorted by non-infinite separation distance from the current center, with separation between low and high\n" +
+                "   (the optional offset and limit list one page of a long answer: skip <offset> actors, then list at most <limit>, " + GameSession.PAGE + " by default, or all of them if negative)\n" +
                 "u <name>: make <name> the center of the universe\n" +
+                "   (a <name> may differ in case or accents, or be #<id> to pick one of several actors with the same name)\n" +
+                "+ <movie>|<name>[|<name>...]: credit the actors in the movie, adding the movie if it is new\n" +
+                "- <movie>[|<name>]: withdraw the actor's credit in the movie, or the whole movie\n" +
+                "   (the first + or - copies the graph into an updatable one, a moment for these files but seconds for a few hundred thousand actors, and the game runs slower on it from then on)\n" +
+                "stats [on|off|reset]: show command latencies, BFS work and graph size, turning recording on or off or clearing it\n" +
                 "q: quit game");
         Scanner input = new Scanner(System.in);
-        System.out.println("\n"+ currentCenter +" is now the center of the acting universe, connected to " + connectedActors(shortestPathData) + "/9235 actors with average separation of " + averageSep(currentCenter, false));
+        GameSession session = session();
+        System.out.println("\n" + session.summary());
         boolean gameMode = true;
         while (gameMode) {
             System.out.println("\n" + currentCenter + " game >");
             String a = input.nextLine();
-            if (a.charAt(0) == 'u') {
-                try {
-                    // edge case: the provided actor is not in the graph
-                    if (!baconGraph.hasVertex(a.substring(2))) {
-                        System.out.println(a.substring(2) + " is not in the graph");
-                    } else {
-                        // edge case: provided actor is the same as the current center
-                        if (Objects.equals(currentCenter, a.substring(2))) {
-                            System.err.println(currentCenter + " is already the center of the universe");
-                        } else {
-                            currentCenter = a.substring(2); // change the current center to the new actor
-                            shortestPathData = GraphLibrary.BFS(baconGraph, currentCenter);
-                            System.out.println(changeCenter(currentCenter, shortestPathData));
-                        }
-                    }
-                }
-                catch (Exception e){
-                    System.err.println("Invalid input. Please read the instruction for all valid keys");
-                }
-            }
-            else if (a.charAt(0) == 'i') {
-                System.out.println(infiniteSeparation());
+            if (a.startsWith("q")) {
+                System.out.println("The End!");
+                gameMode = false;
             }
-
-            else if (a.charAt(0) == 'c') { // create a method for each letter to be called in the main method
-                try{// edge case: num is 0
-                    String s = a.substring(2);  // start from character at i=2 and continues until the end
-                    System.out.println(sortedByUniversalCenter((Integer.parseInt(s))));
-                }
-                catch (Exception e){
-                    System.err.println("Invalid input. Please read the instruction for all valid keys");
-                }
+            else if (a.startsWith("+") || a.startsWith("-")) {
+                long started = Metrics.start();
+                System.out.println(update(a, session));
+                Metrics.command(a.charAt(0), started);
+                session = session(); // the graph and everything over it may have been replaced
             }
-
-            else if (a.charAt(0) == 'p') {
-                try{
-                    String s = a.substring(2);
-                    findShortestPath(s);
-                }
-                catch (Exception e){
-                    System.err.println("Invalid input. Please read the instruction for all valid keys");
-                }
+            else {
+                session.execute(a, System.out); // pages are written as they are read
+                System.out.println();
+                currentCenter = session.center();
+                shortestPathTree = session.tree();
             }
+        }
+    }
 
-            else if (a.charAt(0) == 's') {
-                try {
-                    String firstNum = a.substring(2, a.indexOf(','));
-                    String secondNum = a.substring(a.indexOf(',') + 1);
-                    //edge case: low is greater than high
-                    if (Integer.parseInt(firstNum) > Integer.parseInt(secondNum)) {
-                        System.err.println("The first number is greater than the second");
-                        System.err.println("Please reenter the numbers");
-                    }
-                    //edge case: low and high are equal
-                    else if (Integer.parseInt(firstNum) == Integer.parseInt(secondNum)) {
-                        System.err.println("The first number is equal to the second");
-                        System.err.println("Please reenter the numbers");
-                    } else {
-                        System.out.println(sortedBySeparation((Integer.parseInt(firstNum)), (Integer.parseInt(secondNum))));
-                    }
-                }
-                catch (Exception e){
-                    System.err.println("Invalid input. Please read the instruction for all valid keys");
-                }
-            }
+    /**
+     * A game session over the bacon graph as it is now, at the current center and its tree, which after a + or - is
+     * the repaired tree rather than a cached one; the prompt runs every command but + and - through one, and starts
+     * a new one whenever the graph changes
+     * @return the session
+     */
+    private static GameSession session() {
+        return new GameSession(indexedGraph(), separationEngine(), treeCache(), degreeIndex(), components(), names(),
+                analytics(), currentCenter, shortestPathTree);
+    }
 
-            else if (a.charAt(0) == 'd') {
-                try {
-                    String firstNum = a.substring(2, a.indexOf(','));
-                    String secondNum = a.substring(a.indexOf(',') + 1);
-                    //edge case: low is greater than high
-                    if (Integer.parseInt(firstNum) > Integer.parseInt(secondNum)) {
-                        System.err.println("The first number is greater than the second");
-                        System.err.println("Please reenter the numbers");
-                    }
-                    //edge case: low and high are equal
-                    else if (Integer.parseInt(firstNum) == Integer.parseInt(secondNum)) {
-                        System.err.println("The first number is equal to the second");
-                        System.err.println("Please reenter the numbers");
-                    } else {
-                        System.out.println(sortedByDegree((Integer.parseInt(firstNum)), (Integer.parseInt(secondNum))));
-                    }
+    /**
+     * Run a + or - command on the live graph; actor names are resolved by the session, as in every other command
+     * @param a the command line
+     * @param session the prompt's session
+     * @return the lines the command prints
+     */
+    private static String update(String a, GameSession session) {
+        try {
+            String[] credit = a.substring(2).split("\\|");
+            if (a.charAt(0) == '+') {
+                // edge case: a movie with no actors
+                if (credit.length < 2) {
+                    return "Please name the movie and at least one actor";
                 }
-                catch (Exception e){
-                    System.out.println("Invalid input. Please read the instruction for all valid keys");
+                List<String> actors = new ArrayList<String>();
+                for (int i = 1; i < credit.length; i++) {
+                    actors.add(session.actor(credit[i])); // a name that is not in the graph adds a new actor
                 }
+                int linked = addMovie(credit[0], actors);
+                return "Credited " + actors + " in " + credit[0] + ", " + linked + " new co-star pairs\n" + connectedLine();
             }
-            else if (a.charAt(0) == 'q'){
-                System.out.println("The End!");
-                gameMode = false;
+            // edge case: the movie is not in the graph; checked without thawing the graph
+            if (!hasMovie(credit[0])) {
+                return credit[0] + " is not in the graph";
             }
-            else{
-                System.err.println("Invalid input. Please read the instruction for all valid keys");
+            if (credit.length >= 2) {
+                credit[1] = session.actor(credit[1]);
+                // edge case: the actor is not in the graph
+                if (!baconGraph.hasVertex(credit[1])) {
+                    return credit[1] + " is not in the graph\n" + session.didYouMean(credit[1]);
+                }
             }
+            int unlinked = credit.length < 2 ? removeMovie(credit[0]) : removeCredit(credit[0], credit[1]);
+            return "Withdrew " + (credit.length < 2 ? credit[0] : credit[1] + " from " + credit[0]) + ", " + unlinked
+                    + " co-star pairs gone\n" + connectedLine();
+        }
+        catch (Exception e) {
+            return "Invalid input. Please read the instruction for all valid keys";
         }
     }
+
+    /**
+     * Line about the center after an update: connected actors and average separation
+     */
+    private static String connectedLine() {
+        return currentCenter + " is connected to " + connectedActors(shortestPathTree) + " actors with average separation of " + averageSep(currentCenter, false);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kevin Bacon game server: many players at once over one shared, read-only graph.
+ * It listens on a loopback socket; every connection is a GameSession with its own center of the universe,
+ * served on its own virtual thread where the runtime has them (a cached thread pool otherwise).
+ * The protocol is line based: the client sends one game command per line, the same commands as the BaconGame
+ * prompt, and each response is the command's output followed by an empty line. "q" ends the session.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class BaconServer {
+    public static final int DEFAULT_PORT = 4444;
+
+    private final IndexedGraph<String> graph;                         // shared by every session
+    private final SeparationEngine<String, Set<String>> separations;  // shared by every session
+    private final TreeCache<String> trees;                            // shared by every session
+    private final DegreeIndex<String> degrees;                        // shared by every session
+    private final ComponentIndex<String> components;                  // shared by every session
+    private final NameIndex names;                                    // shared by every session
+    private final GraphAnalytics<String> analytics;                   // shared by every session
+    private final String center;                                      // center a new session starts at
+
+    /**
+     * Create a server over a built graph
+     * @param graph the graph, which must not change while the server runs
+     * @param center center a new session starts at
+     */
+    public BaconServer(IndexedGraph<String> graph, String center) {
+        this.graph = graph;
+        this.trees = new TreeCache<String>(graph, TreeCache.DEFAULT_BUDGET);
+        this.separations = new SeparationEngine<String, Set<String>>(graph, trees);
+        this.degrees = new DegreeIndex<String>(graph);
+        this.components = new ComponentIndex<String>(graph);
+        this.names = new NameIndex(graph.vertices(), BaconGame.actorsMap);
+        this.analytics = new GraphAnalytics<String>(graph, components);
+        this.center = center;
+        Metrics.watch(() -> graph, () -> trees);
+    }
+
+    /**
+     * Accept connections until the process is stopped
+     * @param port loopback port to listen on
+     * @throws IOException if the port cannot be opened
+     */
+    public void serve(int port) throws IOException {
+        ExecutorService sessions = newSessionExecutor();
+        try (ServerSocket server = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            System.out.println("Serving the Kevin Bacon game on " + server.getLocalSocketAddress());
+            while (true) {
+                Socket client = server.accept();
+                sessions.submit(() -> play(client));
+            }
+        }
+        finally {
+            sessions.shutdown();
+        }
+    }
+
+    /**
+     * Run one session over a connection until the client quits or hangs up
+     * @param client the connection
+     */
+    public void play(Socket client) {
+        try (Socket socket = client;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            GameSession session = new GameSession(graph, separations, trees, degrees, components, names, analytics, center);
+            out.println(session.summary());
+            out.println();
+            out.flush();
+            String line;
+            while ((line = in.readLine()) != null && !line.equals("q")) {
+                if (line.isEmpty()) continue;
+                session.execute(line, out); // pages are written as they are read
+                out.println();
+                out.println();
+                out.flush();
+            }
+        }
+        catch (IOException e) {
+            System.err.println("Session ended.\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * One virtual thread per session on Java 21 and later; this code also has to run on older runtimes, so the
+     * factory is looked up reflectively and a cached pool of platform threads stands in when it is missing
+     * @return executor for sessions
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // usage: BaconServer [port] [--bipartite]
+        List<String> options = new ArrayList<String>(Arrays.asList(args));
+        BaconGame.bipartite = options.remove("--bipartite");
+        int port = options.isEmpty() ? DEFAULT_PORT : Integer.parseInt(options.get(0));
+        Metrics.register();
+        BaconGame.loadGraph("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+        new BaconServer(BaconGame.indexedGraph(), BaconGame.currentCenter).serve(port);
+    }
+}
@@ -0,0 +1,193 @@
+import java.util.*;
+
+/**
+ * Point-to-point shortest path between two actors by a bidirectional BFS.
+ * One search grows from each end, a whole level at a time and always on the side with the smaller frontier,
+ * until a level reaches a vertex the other side has seen. On a small-world graph both searches stay a few levels
+ * deep, so a query explores a small fraction of the graph where re-centering would run a BFS over all of it.
+ * On a BipartiteGraph a level goes from actors to their movies to their casts, and each side scans a movie's cast
+ * at most once per query, as ShortestPathTree does, instead of building each actor's list of co-stars.
+ * Buffers are reused between queries and reset by bumping a stamp, so a query allocates only its path.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class BidirectionalSearch<V> {
+    private final IndexedGraph<V> graph; // graph the paths are found in
+    private final Side forward = new Side(true);    // grows from the source over out neighbors
+    private final Side backward = new Side(false);  // grows from the target over in neighbors
+    private int stamp;                   // number of queries so far; marks what the current query has seen
+    private int explored;                // vertices reached by the last query, both sides together
+    private long scanned;                // edges looked at by the last query, both sides together
+
+    /**
+     * Create a search over a graph; one instance is meant to be reused by one thread
+     * @param graph the graph
+     */
+    public BidirectionalSearch(IndexedGraph<V> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return the graph the paths are found in
+     */
+    public IndexedGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * @return number of vertices the last query reached from either end
+     */
+    public int exploredCount() {
+        return explored;
+    }
+
+    /**
+     * Shortest path between two vertices
+     * @param source start of the path
+     * @param target end of the path
+     * @return the path from source to target, both included, or empty if either is missing or there is no path
+     */
+    public List<V> path(V source, V target) {
+        int s = graph.idOf(source), t = graph.idOf(target);
+        if (s < 0 || t < 0) {
+            return new ArrayList<V>();
+        }
+        if (++stamp == Integer.MAX_VALUE) { // stamps ran out, start over from clean buffers
+            forward.seen = new int[0];
+            backward.seen = new int[0];
+            forward.movieSeen = new int[0];
+            backward.movieSeen = new int[0];
+            stamp = 1;
+        }
+        forward.start(s);
+        backward.start(t);
+        scanned = 0;
+        int meet = s == t ? s : -1;
+        while (meet < 0 && forward.hasNext() && backward.hasNext()) {
+            Side side = forward.frontierSize() <= backward.frontierSize() ? forward : backward;
+            meet = side.expandLevel(side == forward ? backward : forward);
+        }
+        explored = forward.tail + backward.tail;
+        Metrics.searched(explored, scanned);
+        if (meet < 0) {
+            return new ArrayList<V>();
+        }
+        LinkedList<V> path = new LinkedList<V>();
+        for (int id = meet; id >= 0; id = forward.parent[id]) {
+            path.addFirst(graph.vertexAt(id));
+        }
+        for (int id = backward.parent[meet]; id >= 0; id = backward.parent[id]) {
+            path.addLast(graph.vertexAt(id));
+        }
+        return new ArrayList<V>(path);
+    }
+
+    /**
+     * One end of the search: its own seen stamps, parents, distances and a queue of reached ids
+     */
+    private class Side {
+        private final boolean out; // follow out neighbors (forward) or in neighbors (backward)
+        private int[] seen = new int[0], parent = new int[0], dist = new int[0], queue = new int[0];
+        private int[] movieSeen = new int[0]; // movie id --> stamp of the query whose side scanned its cast, bipartite only
+        private int head, tail;    // queue[head .. tail) is the frontier
+
+        Side(boolean out) {
+            this.out = out;
+        }
+
+        void start(int root) {
+            int n = graph.numVertices();
+            if (seen.length < n) { // first query, or the graph has grown since the last one
+                seen = Arrays.copyOf(seen, n);
+                parent = new int[n];
+                dist = new int[n];
+                queue = new int[n];
+            }
+            if (graph instanceof BipartiteGraph && movieSeen.length < ((BipartiteGraph<V>) graph).numMovies()) {
+                movieSeen = Arrays.copyOf(movieSeen, ((BipartiteGraph<V>) graph).numMovies());
+            }
+            seen[root] = stamp;
+            parent[root] = -1;
+            dist[root] = 0;
+            queue[0] = root;
+            head = 0;
+            tail = 1;
+        }
+
+        boolean hasNext() {
+            return head < tail;
+        }
+
+        int frontierSize() {
+            return tail - head;
+        }
+
+        /**
+         * Expand the whole frontier by one level
+         * @param other the search from the other end
+         * @return the vertex on the shortest path found through this level, or -1 if the searches have not met
+         */
+        int expandLevel(Side other) {
+            int levelEnd = tail, meet = -1, best = Integer.MAX_VALUE;
+            for (; head < levelEnd; head++) {
+                int u = queue[head];
+                if (graph instanceof CSRGraph) {
+                    CSRGraph<V> compact = (CSRGraph<V>) graph;
+                    int[] offsets = out ? compact.outOffsets() : compact.inOffsets();
+                    int[] targets = out ? compact.outTargets() : compact.inSources();
+                    scanned += offsets[u + 1] - offsets[u];
+                    for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                        int v = targets[e];
+                        if (seen[v] != stamp && visit(u, v, other) < best) {
+                            best = dist[v] + other.dist[v];
+                            meet = v;
+                        }
+                    }
+                }
+                else if (graph instanceof BipartiteGraph) { // co-stars are symmetric, so both sides go the same way
+                    BipartiteGraph<V> bipartite = (BipartiteGraph<V>) graph;
+                    int[] filmOffsets = bipartite.filmOffsets(), filmMovies = bipartite.filmMovies();
+                    int[] castOffsets = bipartite.castOffsets(), castActors = bipartite.castActors();
+                    scanned += filmOffsets[u + 1] - filmOffsets[u];
+                    for (int f = filmOffsets[u]; f < filmOffsets[u + 1]; f++) {
+                        int m = filmMovies[f];
+                        if (movieSeen[m] == stamp) continue; // its cast was reached through an earlier actor
+                        movieSeen[m] = stamp;
+                        scanned += castOffsets[m + 1] - castOffsets[m];
+                        for (int c = castOffsets[m]; c < castOffsets[m + 1]; c++) {
+                            int v = castActors[c];
+                            if (seen[v] != stamp && visit(u, v, other) < best) {
+                                best = dist[v] + other.dist[v];
+                                meet = v;
+                            }
+                        }
+                    }
+                }
+                else {
+                    V vertex = graph.vertexAt(u);
+                    for (V neighbor : out ? graph.outNeighbors(vertex) : graph.inNeighbors(vertex)) {
+                        int v = graph.idOf(neighbor);
+                        scanned++;
+                        if (seen[v] != stamp && visit(u, v, other) < best) {
+                            best = dist[v] + other.dist[v];
+                            meet = v;
+                        }
+                    }
+                }
+            }
+            return meet;
+        }
+
+        /**
+         * Reach v from u
+         * @return length of the path through v if the other side has seen it, else Integer.MAX_VALUE
+         */
+        private int visit(int u, int v, Side other) {
+            seen[v] = stamp;
+            parent[v] = u;
+            dist[v] = dist[u] + 1;
+            queue[tail++] = v;
+            return other.seen[v] == stamp ? dist[v] + other.dist[v] : Integer.MAX_VALUE;
+        }
+    }
+}
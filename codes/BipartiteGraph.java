@@ -0,0 +1,293 @@
+import java.util.*;
+
+/**
+ * Actor-movie bipartite form of the bacon graph: actors link to their movies and movies to their cast,
+ * instead of every movie being expanded into a clique of co-star edges.
+ * Storage and build time are linear in the number of credits, where the co-star graph grows with the square of
+ * each cast. Seen as a Graph it still has actors as vertices and co-stars as neighbors, but those are worked out
+ * on demand: a co-star step is two hops (actor to movie to actor), and an edge label is the intersection of the
+ * two actors' movie lists, so findShortestPath recovers the movies only along the path it prints.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class BipartiteGraph<V> implements IndexedGraph<V> {
+    private final V[] actors;                       // actor id --> actor
+    private final Map<V, Integer> ids;              // actor --> actor id
+    private final int[] filmOffsets, filmMovies;    // movies of actor a are filmMovies[filmOffsets[a] .. filmOffsets[a+1]), ascending
+    private final int[] castOffsets, castActors;    // cast of movie m is castActors[castOffsets[m] .. castOffsets[m+1]), ascending
+    private final String[] movieTitles;             // movie id --> movie title
+    private volatile int[] degrees;                 // actor id --> number of co-stars, counted the first time one is asked for
+    private volatile long coStarEdges;              // sum of degrees, counted with them
+
+    private BipartiteGraph(V[] actors, String[] movieTitles, int[][] filmography, int[][] cast) {
+        this.actors = actors;
+        this.movieTitles = movieTitles;
+        filmOffsets = filmography[0];
+        filmMovies = filmography[1];
+        castOffsets = cast[0];
+        castActors = cast[1];
+        ids = new HashMap<V, Integer>(actors.length * 2);
+        for (int i = 0; i < actors.length; i++) {
+            ids.put(actors[i], i);
+        }
+    }
+
+    /**
+     * Build the bipartite graph from movie-actor credits given as dense int ids
+     * @param actors actor id --> actor, with no duplicates
+     * @param movieTitles movie id --> movie title
+     * @param creditMovie movie id of every credit
+     * @param creditActor actor id of every credit, aligned with creditMovie
+     * @param <V> generic type vertex
+     * @return the bipartite graph
+     */
+    public static <V> BipartiteGraph<V> fromCredits(V[] actors, String[] movieTitles, int[] creditMovie, int[] creditActor) {
+        return new BipartiteGraph<V>(actors.clone(), movieTitles.clone(),
+                CSRGraph.group(actors.length, creditActor, creditMovie),
+                CSRGraph.group(movieTitles.length, creditMovie, creditActor));
+    }
+
+    public int numVertices() {
+        return actors.length;
+    }
+
+    /**
+     * Number of directed co-star edges the clique expansion would have, capped at Integer.MAX_VALUE; see coStarEdges
+     */
+    public int numEdges() {
+        return (int) Math.min(coStarEdges(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Number of directed co-star edges the clique expansion would have. Counting them costs the sum of every
+     * cast size squared, the cost this form exists to avoid, so it is done once, with the degrees, and remembered.
+     */
+    public long coStarEdges() {
+        degrees();
+        return coStarEdges;
+    }
+
+    /**
+     * @return number of actor-movie credits, the edges this graph actually stores
+     */
+    public int numCredits() {
+        return castActors.length;
+    }
+
+    public Iterable<V> vertices() {
+        return Collections.unmodifiableList(Arrays.asList(actors));
+    }
+
+    public boolean hasVertex(V v) {
+        return ids.containsKey(v);
+    }
+
+    public int outDegree(V v) {
+        return degrees()[ids.get(v)];
+    }
+
+    public int inDegree(V v) {
+        return outDegree(v);
+    }
+
+    public Iterable<V> outNeighbors(V v) {
+        List<V> neighbors = new ArrayList<V>();
+        for (int id : coStars(ids.get(v))) {
+            neighbors.add(actors[id]);
+        }
+        return neighbors;
+    }
+
+    public Iterable<V> inNeighbors(V v) {
+        return outNeighbors(v);
+    }
+
+    public boolean hasEdge(V u, V v) {
+        Integer from = ids.get(u), to = ids.get(v);
+        return from != null && to != null && !from.equals(to) && sharedMovies(from, to).length > 0;
+    }
+
+    /**
+     * Titles of the movies two actors appeared in together, intersected from their movie lists when asked for
+     * @return a new set of titles, or null if they never appeared together
+     */
+    public Set<String> getLabel(V u, V v) {
+        int from = ids.get(u), to = ids.get(v);
+        int[] shared = from == to ? new int[0] : sharedMovies(from, to);
+        if (shared.length == 0) {
+            return null;
+        }
+        Set<String> titles = new HashSet<String>();
+        for (int m : shared) {
+            titles.add(movieTitles[m]);
+        }
+        return titles;
+    }
+
+    public void insertVertex(V v) {
+        throw new UnsupportedOperationException("BipartiteGraph is frozen");
+    }
+
+    public void insertDirected(V u, V v, Set<String> e) {
+        throw new UnsupportedOperationException("BipartiteGraph is frozen");
+    }
+
+    public void insertUndirected(V u, V v, Set<String> e) {
+        throw new UnsupportedOperationException("BipartiteGraph is frozen");
+    }
+
+    public void removeVertex(V v) {
+        throw new UnsupportedOperationException("BipartiteGraph is frozen");
+    }
+
+    public void removeDirected(V u, V v) {
+        throw new UnsupportedOperationException("BipartiteGraph is frozen");
+    }
+
+    public void removeUndirected(V u, V v) {
+        throw new UnsupportedOperationException("BipartiteGraph is frozen");
+    }
+
+    public int idOf(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    public V vertexAt(int id) {
+        return actors[id];
+    }
+
+    /**
+     * @return number of movies
+     */
+    public int numMovies() {
+        return movieTitles.length;
+    }
+
+    /**
+     * Row offsets of actor --> movies; the array is shared and must not be modified
+     */
+    public int[] filmOffsets() {
+        return filmOffsets;
+    }
+
+    /**
+     * Movies of every actor, each row ascending; the array is shared and must not be modified
+     */
+    public int[] filmMovies() {
+        return filmMovies;
+    }
+
+    /**
+     * Row offsets of movie --> cast; the array is shared and must not be modified
+     */
+    public int[] castOffsets() {
+        return castOffsets;
+    }
+
+    /**
+     * Cast of every movie, each row ascending; the array is shared and must not be modified
+     */
+    public int[] castActors() {
+        return castActors;
+    }
+
+    String[] movieTitles() {
+        return movieTitles;
+    }
+
+    /**
+     * Returns a string representation of the actor and movie lists.
+     */
+    public String toString() {
+        StringBuilder films = new StringBuilder("{");
+        for (int a = 0; a < actors.length; a++) {
+            if (a > 0) films.append(", ");
+            films.append(actors[a]).append("=[");
+            for (int f = filmOffsets[a]; f < filmOffsets[a + 1]; f++) {
+                if (f > filmOffsets[a]) films.append(", ");
+                films.append(movieTitles[filmMovies[f]]);
+            }
+            films.append(']');
+        }
+        return "Vertices: " + Arrays.toString(actors) + "\nMovies: " + films.append('}');
+    }
+
+    /**
+     * Number of distinct co-stars of every actor, counted in one pass that stamps each actor's co-stars instead of
+     * collecting them, the first time it is needed
+     */
+    private int[] degrees() {
+        int[] counted = degrees;
+        if (counted == null) {
+            synchronized (this) {
+                counted = degrees;
+                if (counted == null) {
+                    counted = new int[actors.length];
+                    int[] stamp = new int[actors.length];
+                    Arrays.fill(stamp, -1);
+                    long edges = 0;
+                    for (int u = 0; u < actors.length; u++) {
+                        for (int f = filmOffsets[u]; f < filmOffsets[u + 1]; f++) {
+                            int m = filmMovies[f];
+                            for (int c = castOffsets[m]; c < castOffsets[m + 1]; c++) {
+                                int v = castActors[c];
+                                if (v != u && stamp[v] != u) {
+                                    stamp[v] = u;
+                                    counted[u]++;
+                                }
+                            }
+                        }
+                        edges += counted[u];
+                    }
+                    coStarEdges = edges;
+                    degrees = counted;
+                }
+            }
+        }
+        return counted;
+    }
+
+    /**
+     * Distinct co-stars of an actor, ascending
+     */
+    private int[] coStars(int u) {
+        int size = 0;
+        for (int f = filmOffsets[u]; f < filmOffsets[u + 1]; f++) {
+            int m = filmMovies[f];
+            size += castOffsets[m + 1] - castOffsets[m];
+        }
+        int[] all = new int[size];
+        size = 0;
+        for (int f = filmOffsets[u]; f < filmOffsets[u + 1]; f++) {
+            int m = filmMovies[f];
+            for (int c = castOffsets[m]; c < castOffsets[m + 1]; c++) {
+                all[size++] = castActors[c];
+            }
+        }
+        Arrays.sort(all);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (all[i] != u && (distinct == 0 || all[i] != all[distinct - 1])) all[distinct++] = all[i];
+        }
+        return Arrays.copyOf(all, distinct);
+    }
+
+    /**
+     * Movies in both actors' sorted movie lists, by a merge
+     */
+    private int[] sharedMovies(int u, int v) {
+        int[] shared = new int[Math.min(filmOffsets[u + 1] - filmOffsets[u], filmOffsets[v + 1] - filmOffsets[v])];
+        int size = 0;
+        for (int i = filmOffsets[u], j = filmOffsets[v]; i < filmOffsets[u + 1] && j < filmOffsets[v + 1]; ) {
+            if (filmMovies[i] < filmMovies[j]) i++;
+            else if (filmMovies[i] > filmMovies[j]) j++;
+            else {
+                shared[size++] = filmMovies[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(shared, size);
+    }
+}
@@ -0,0 +1,454 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Fast loader for the pipe-delimited actors, movies and movie-actors files.
+ * The files are memory-mapped and parsed byte by byte: ids are read as ints without any regex or String,
+ * each name is decoded once, and the credits are kept as two int arrays of dense movie and actor ids
+ * from which the CSRGraph is built directly. The movie-actors file can be split across threads.
+ * Like BaconGame.fileReader, actors with the same name are one vertex and movies with the same title are one cast.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class BulkLoader {
+    private static final long CHUNK = 1 << 30; // largest slice of a file mapped at once
+    private static final long MIN_SLICE = 1 << 16; // smallest slice a file is split into for parsing threads
+
+    private final List<String> actorNames = new ArrayList<String>();   // dense actor id --> name
+    private final List<String> movieTitles = new ArrayList<String>();  // dense movie id --> title
+    private final IntIntMap actorIds = new IntIntMap();                // file actor id --> dense actor id
+    private final IntIntMap movieIds = new IntIntMap();                // file movie id --> dense movie id
+    private IdMap actorsById;                                          // file actor id --> name, built when first asked for
+    private IdMap moviesById;                                          // file movie id --> title, built when first asked for
+    private int[] creditMovie = new int[0], creditActor = new int[0];  // dense ids of every credit
+    private int credits;
+    private int threads = 1;                                           // threads parsing the credits and building the graph
+
+    /**
+     * Load the three files
+     * @param actorPath location of the actors file
+     * @param moviePath location of the movies file
+     * @param actorsMoviePath location of the actor and movie file
+     * @param threads number of threads parsing the movie-actors file and building the graph
+     * @return the loaded data
+     * @throws IOException if a file cannot be read or has an id that is not a number
+     */
+    public static BulkLoader load(String actorPath, String moviePath, String actorsMoviePath, int threads) throws IOException {
+        BulkLoader loader = new BulkLoader();
+        loader.readNames(Paths.get(actorPath), loader.actorIds, loader.actorNames);
+        loader.readNames(Paths.get(moviePath), loader.movieIds, loader.movieTitles);
+        loader.threads = Math.max(1, threads);
+        loader.readCredits(Paths.get(actorsMoviePath), loader.threads);
+        return loader;
+    }
+
+    /**
+     * Build the co-star graph from the loaded credits, on as many threads as parsed them
+     * @return the compact graph
+     */
+    public CSRGraph<String> graph() {
+        return CSRGraph.fromCredits(actorNames.toArray(new String[0]), movieTitles.toArray(new String[0]),
+                Arrays.copyOf(creditMovie, credits), Arrays.copyOf(creditActor, credits), threads);
+    }
+
+    /**
+     * Build the actor-movie bipartite graph from the loaded credits, in time linear in the credits
+     * @return the bipartite graph
+     */
+    public BipartiteGraph<String> bipartiteGraph() {
+        return BipartiteGraph.fromCredits(actorNames.toArray(new String[0]), movieTitles.toArray(new String[0]),
+                Arrays.copyOf(creditMovie, credits), Arrays.copyOf(creditActor, credits));
+    }
+
+    /**
+     * @return actor id --> actor name, as in BaconGame.actorsMap; a read-only view over the parsed ids
+     */
+    public Map<String, String> actorsMap() {
+        if (actorsById == null) {
+            actorsById = actorIds.view(actorNames.toArray(new String[0]));
+        }
+        return actorsById;
+    }
+
+    /**
+     * @return movie id --> movie name, as in BaconGame.moviesMap; a read-only view over the parsed ids
+     */
+    public Map<String, String> moviesMap() {
+        if (moviesById == null) {
+            moviesById = movieIds.view(movieTitles.toArray(new String[0]));
+        }
+        return moviesById;
+    }
+
+    /**
+     * @return number of credits that named a known movie and actor
+     */
+    public int numCredits() {
+        return credits;
+    }
+
+    /**
+     * Read an "id|name" file, giving every distinct name the next dense id
+     */
+    private void readNames(Path path, IntIntMap ids, List<String> names) throws IOException {
+        Map<String, Integer> dense = new HashMap<String, Integer>();
+        Charset charset = Charset.defaultCharset(); // what FileReader decodes with
+        for (MappedByteBuffer buffer : map(path, 1)) {
+            int end = buffer.limit();
+            for (int pos = 0; pos < end; ) {
+                int lineEnd = lineEnd(buffer, pos, end);
+                int bar = indexOf(buffer, pos, lineEnd, (byte) '|');
+                if (bar > pos) {
+                    int id;
+                    try {
+                        id = parseInt(buffer, pos, bar, pos, lineEnd);
+                    }
+                    catch (IOException e) {
+                        throw new IOException("Cannot parse " + path + "\n" + e.getMessage(), e);
+                    }
+                    int nameEnd = lineEnd > bar + 1 && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                    byte[] bytes = new byte[nameEnd - bar - 1];
+                    buffer.get(bar + 1, bytes);
+                    String name = new String(bytes, charset);
+                    Integer denseId = dense.get(name);
+                    if (denseId == null) {
+                        denseId = names.size();
+                        dense.put(name, denseId);
+                        names.add(name);
+                    }
+                    ids.put(id, denseId);
+                }
+                pos = lineEnd + 1;
+            }
+        }
+    }
+
+    /**
+     * Read the "movieId|actorId" file, each chunk on its own thread, appending the chunks in file order
+     */
+    private void readCredits(Path path, int threads) throws IOException {
+        List<MappedByteBuffer> chunks = map(path, threads);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, chunks.size())));
+        try {
+            List<Future<int[][]>> parsed = new ArrayList<Future<int[][]>>();
+            for (MappedByteBuffer chunk : chunks) {
+                parsed.add(pool.submit(() -> parseCredits(chunk)));
+            }
+            for (Future<int[][]> future : parsed) {
+                int[][] part = future.get();
+                int size = part[0].length;
+                creditMovie = Arrays.copyOf(creditMovie, credits + size);
+                creditActor = Arrays.copyOf(creditActor, credits + size);
+                System.arraycopy(part[0], 0, creditMovie, credits, size);
+                System.arraycopy(part[1], 0, creditActor, credits, size);
+                credits += size;
+            }
+        }
+        catch (InterruptedException e) {
+            throw new IOException("Cannot parse " + path + "\n" + e.getMessage(), e);
+        }
+        catch (ExecutionException e) {
+            throw new IOException("Cannot parse " + path + "\n" + e.getCause().getMessage(), e.getCause());
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Parse one chunk of credits into dense ids, skipping credits whose movie or actor is unknown
+     * @return {movie ids, actor ids}
+     * @throws IOException if a movie or actor id is not a number
+     */
+    private int[][] parseCredits(MappedByteBuffer buffer) throws IOException {
+        int[] movies = new int[1024], actors = new int[1024];
+        int size = 0;
+        int end = buffer.limit();
+        for (int pos = 0; pos < end; ) {
+            int lineEnd = lineEnd(buffer, pos, end);
+            int bar = indexOf(buffer, pos, lineEnd, (byte) '|');
+            if (bar > pos) {
+                int movie = movieIds.get(parseInt(buffer, pos, bar, pos, lineEnd));
+                int actor = actorIds.get(parseInt(buffer, bar + 1, lineEnd, pos, lineEnd));
+                if (movie >= 0 && actor >= 0) {
+                    if (size == movies.length) {
+                        movies = Arrays.copyOf(movies, size * 2);
+                        actors = Arrays.copyOf(actors, size * 2);
+                    }
+                    movies[size] = movie;
+                    actors[size++] = actor;
+                }
+            }
+            pos = lineEnd + 1;
+        }
+        return new int[][] {Arrays.copyOf(movies, size), Arrays.copyOf(actors, size)};
+    }
+
+    /**
+     * Map a file in read-only slices that end on line boundaries
+     * @param parts number of slices wanted; fewer are used if a slice would be under MIN_SLICE bytes, more if it
+     * would exceed CHUNK bytes
+     * @throws IOException if the file cannot be read or has a line longer than CHUNK bytes
+     */
+    private static List<MappedByteBuffer> map(Path path, int parts) throws IOException {
+        List<MappedByteBuffer> slices = new ArrayList<MappedByteBuffer>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long target = Math.min(CHUNK, Math.max(MIN_SLICE, (size + parts - 1) / parts));
+            ByteBuffer block = ByteBuffer.allocate(1 << 16);
+            long start = 0;
+            while (start < size) {
+                long end = Math.min(size, start + target);
+                // pull the slice back to the end of its last whole line, so no slice can outgrow CHUNK
+                long cut = end;
+                while (end < size && cut > start) {
+                    block.clear();
+                    long from = Math.max(start, cut - block.capacity());
+                    block.limit((int) (cut - from));
+                    channel.read(block, from);
+                    int i = block.position() - 1;
+                    while (i >= 0 && block.get(i) != '\n') i--;
+                    if (i >= 0) {
+                        end = from + i + 1;
+                        break;
+                    }
+                    cut = from;
+                }
+                // no line ends in the slice: stretch it forward to the end of its first line instead
+                for (long from = end; end < size && cut == start && from < start + CHUNK; ) {
+                    block.clear();
+                    block.limit((int) Math.min(block.capacity(), start + CHUNK - from));
+                    int read = channel.read(block, from);
+                    int i = 0;
+                    while (i < block.position() && block.get(i) != '\n') i++;
+                    if (i < block.position()) {
+                        end = cut = from + i + 1;
+                    }
+                    else if (read < 0 || from + read >= size) {
+                        end = size;
+                    }
+                    from += Math.max(read, 0);
+                }
+                if (end < size && cut == start) {
+                    throw new IOException(path + " has a line longer than " + CHUNK + " bytes");
+                }
+                slices.add(channel.map(FileChannel.MapMode.READ_ONLY, start, end - start));
+                start = end;
+            }
+        }
+        return slices;
+    }
+
+    private static int lineEnd(MappedByteBuffer buffer, int pos, int end) {
+        int i = indexOf(buffer, pos, end, (byte) '\n');
+        return i < 0 ? end : i;
+    }
+
+    private static int indexOf(MappedByteBuffer buffer, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Parse a decimal int from bytes: an optional leading minus, then digits, then at most the '\r' of a CRLF line end
+     * @param lineStart start of the line the int is on, to report it
+     * @param lineEnd end of that line
+     * @throws IOException if the bytes are anything else or the number does not fit in an int
+     */
+    private static int parseInt(MappedByteBuffer buffer, int from, int to, int lineStart, int lineEnd) throws IOException {
+        if (to > from && buffer.get(to - 1) == '\r') to--;
+        boolean negative = to > from && buffer.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) {
+            throw new IOException("Bad id in line \"" + line(buffer, lineStart, lineEnd) + "\"");
+        }
+        int value = 0;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9' || value > (Integer.MAX_VALUE - (b - '0')) / 10) {
+                throw new IOException("Bad id in line \"" + line(buffer, lineStart, lineEnd) + "\"");
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Text of a line, without a trailing '\r', for error messages
+     */
+    private static String line(MappedByteBuffer buffer, int from, int to) {
+        if (to > from && buffer.get(to - 1) == '\r') to--;
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, Charset.defaultCharset());
+    }
+
+    /**
+     * Open-addressing int --> int map for the file ids, so lookups box nothing; missing keys give -1
+     */
+    private static class IntIntMap {
+        private int[] keys = new int[1024];
+        private int[] values = new int[1024]; // -1 marks a free slot
+        private int size;
+
+        IntIntMap() {
+            Arrays.fill(values, -1);
+        }
+
+        int get(int key) {
+            for (int i = slot(key, keys.length); values[i] >= 0; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) return values[i];
+            }
+            return -1;
+        }
+
+        void put(int key, int value) {
+            if (2 * (size + 1) > keys.length) grow();
+            int i = slot(key, keys.length);
+            for (; values[i] >= 0; i = (i + 1) & (keys.length - 1)) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        /**
+         * @param names dense id --> name
+         * @return read-only map of every key, as a decimal string, to the name of its value
+         */
+        IdMap view(String[] names) {
+            int[] fileIds = new int[size], dense = new int[size];
+            int k = 0;
+            for (int i = 0; i < keys.length; i++) {
+                if (values[i] >= 0) {
+                    fileIds[k] = keys[i];
+                    dense[k++] = values[i];
+                }
+            }
+            return new IdMap(fileIds, dense, names);
+        }
+
+        private void grow() {
+            int[] oldKeys = keys, oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(values, -1);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] >= 0) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(int key, int capacity) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (capacity - 1);
+        }
+    }
+
+    /**
+     * Read-only map from file ids, as decimal strings, to names, kept as two int arrays sorted by file id and the
+     * dense names, so a map over millions of ids holds no String keys or entries; lookups are binary searches
+     */
+    static class IdMap extends AbstractMap<String, String> {
+        private final int[] fileIds;  // ascending
+        private final int[] denseIds; // dense id of each file id
+        private final String[] names; // dense id --> name
+
+        /**
+         * @param fileIds file ids, in any order
+         * @param denseIds dense id of each file id
+         * @param names dense id --> name
+         */
+        IdMap(int[] fileIds, int[] denseIds, String[] names) {
+            long[] pairs = new long[fileIds.length];
+            for (int i = 0; i < pairs.length; i++) {
+                pairs[i] = (long) fileIds[i] << 32 | (denseIds[i] & 0xFFFFFFFFL);
+            }
+            Arrays.sort(pairs);
+            this.fileIds = new int[pairs.length];
+            this.denseIds = new int[pairs.length];
+            for (int i = 0; i < pairs.length; i++) {
+                this.fileIds[i] = (int) (pairs[i] >> 32);
+                this.denseIds[i] = (int) pairs[i];
+            }
+            this.names = names;
+        }
+
+        /**
+         * @return file ids, ascending; must only be read
+         */
+        int[] fileIds() {
+            return fileIds;
+        }
+
+        /**
+         * @return dense id of each file id; must only be read
+         */
+        int[] denseIds() {
+            return denseIds;
+        }
+
+        public String get(Object key) {
+            int at = indexOf(key);
+            return at < 0 ? null : names[denseIds[at]];
+        }
+
+        public boolean containsKey(Object key) {
+            return indexOf(key) >= 0;
+        }
+
+        public int size() {
+            return fileIds.length;
+        }
+
+        public Set<Map.Entry<String, String>> entrySet() {
+            return new AbstractSet<Map.Entry<String, String>>() {
+                public Iterator<Map.Entry<String, String>> iterator() {
+                    return new Iterator<Map.Entry<String, String>>() {
+                        private int next = 0;
+
+                        public boolean hasNext() {
+                            return next < fileIds.length;
+                        }
+
+                        public Map.Entry<String, String> next() {
+                            if (next >= fileIds.length) throw new NoSuchElementException();
+                            int at = next++;
+                            return new AbstractMap.SimpleImmutableEntry<String, String>(Integer.toString(fileIds[at]), names[denseIds[at]]);
+                        }
+                    };
+                }
+
+                public int size() {
+                    return fileIds.length;
+                }
+            };
+        }
+
+        private int indexOf(Object key) {
+            if (!(key instanceof String)) return -1;
+            try {
+                String id = (String) key;
+                int at = Arrays.binarySearch(fileIds, Integer.parseInt(id));
+                return at >= 0 && Integer.toString(fileIds[at]).equals(id) ? at : -1; // "007" is not actor 7
+            }
+            catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+}
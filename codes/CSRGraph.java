@@ -0,0 +1,680 @@
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**
+ * Frozen, read-optimized implementation of the Graph interface in compressed sparse row form.
+ * Vertices are mapped to dense int ids, neighbors are stored in primitive offset/target arrays sorted by id,
+ * and every edge label is a sorted run of movie ids in a shared pool, resolved to titles only when asked for.
+ * The u->v and v->u edges of a co-star pair share one run.
+ * The cast of every movie is kept as well, so the credits can be recovered when the graph is thawed for updates.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class CSRGraph<V> implements IndexedGraph<V> {
+    private final V[] vertexNames;               // id --> vertex
+    private final Map<V, Integer> ids;           // vertex --> id
+    private final int[] outOffsets, outTargets;  // out neighbors of u are outTargets[outOffsets[u] .. outOffsets[u+1])
+    private final int[] inOffsets, inSources;    // in neighbors of v are inSources[inOffsets[v] .. inOffsets[v+1])
+    private final int[] labelStart, labelLength; // movies of out edge e are moviePool[labelStart[e] .. labelStart[e]+labelLength[e])
+    private final int[] moviePool;               // movie ids of every label run
+    private final String[] movieTitles;          // movie id --> movie title
+    private final int[] castOffsets, castActors; // cast of movie m is castActors[castOffsets[m] .. castOffsets[m+1]), ascending
+
+    private CSRGraph(V[] vertexNames, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inSources,
+                     int[] labelStart, int[] labelLength, int[] moviePool, String[] movieTitles,
+                     int[] castOffsets, int[] castActors) {
+        this.vertexNames = vertexNames;
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.labelStart = labelStart;
+        this.labelLength = labelLength;
+        this.moviePool = moviePool;
+        this.movieTitles = movieTitles;
+        this.castOffsets = castOffsets;
+        this.castActors = castActors;
+        ids = new HashMap<V, Integer>(vertexNames.length * 2);
+        for (int i = 0; i < vertexNames.length; i++) {
+            ids.put(vertexNames[i], i);
+        }
+    }
+
+    /**
+     * Copy a graph whose edge labels are sets of movie titles into a frozen compact graph.
+     * Casts are recovered from the labels, so a movie whose only credit is a single actor leaves no trace.
+     * @param graph the graph to copy
+     * @param <V> generic type vertex
+     * @return the compact graph
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> CSRGraph<V> freeze(Graph<V, Set<String>> graph) {
+        int n = graph.numVertices();
+        V[] vertexNames = (V[]) new Object[n];
+        Map<V, Integer> ids = new HashMap<V, Integer>(n * 2);
+        for (V v : graph.vertices()) {
+            ids.put(v, ids.size());
+            vertexNames[ids.get(v)] = v;
+        }
+
+        // out rows, each sorted by neighbor id
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[graph.numEdges()];
+        for (int u = 0; u < n; u++) {
+            int start = outOffsets[u];
+            int end = start;
+            for (V v : graph.outNeighbors(vertexNames[u])) {
+                outTargets[end++] = ids.get(v);
+            }
+            Arrays.sort(outTargets, start, end);
+            outOffsets[u + 1] = end;
+        }
+
+        // labels, sharing the run of the reverse edge when both directions carry the same movies
+        Map<String, Integer> movieIds = new HashMap<String, Integer>();
+        List<String> movieTitles = new ArrayList<String>();
+        int[] labelStart = new int[outTargets.length];
+        int[] labelLength = new int[outTargets.length];
+        int[] moviePool = new int[16];
+        int poolSize = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                int v = outTargets[e];
+                Set<String> label = graph.getLabel(vertexNames[u], vertexNames[v]);
+                int reverse = v < u ? find(outOffsets, outTargets, v, u) : -1;
+                if (reverse >= 0 && label.equals(graph.getLabel(vertexNames[v], vertexNames[u]))) {
+                    labelStart[e] = labelStart[reverse];
+                    labelLength[e] = labelLength[reverse];
+                    continue;
+                }
+                if (poolSize + label.size() > moviePool.length) {
+                    moviePool = Arrays.copyOf(moviePool, Math.max(moviePool.length * 2, poolSize + label.size()));
+                }
+                labelStart[e] = poolSize;
+                for (String title : label) {
+                    if (!movieIds.containsKey(title)) {
+                        movieIds.put(title, movieTitles.size());
+                        movieTitles.add(title);
+                    }
+                    moviePool[poolSize++] = movieIds.get(title);
+                }
+                labelLength[e] = label.size();
+                Arrays.sort(moviePool, labelStart[e], poolSize);
+            }
+        }
+
+        // in rows
+        int[] inOffsets = new int[n + 1];
+        int[] inSources = new int[outTargets.length];
+        for (int v : outTargets) {
+            inOffsets[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int u = 0; u < n; u++) { // u ascending keeps every in row sorted
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                inSources[next[outTargets[e]]++] = u;
+            }
+        }
+
+        // casts: both ends of every labelled edge appeared in each of its movies
+        int credits = 0;
+        for (int e = 0; e < outTargets.length; e++) credits += 2 * labelLength[e];
+        int[] creditMovie = new int[credits], creditActor = new int[credits];
+        credits = 0;
+        for (int u = 0; u < n; u++) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                for (int i = labelStart[e]; i < labelStart[e] + labelLength[e]; i++) {
+                    creditMovie[credits] = moviePool[i];
+                    creditActor[credits++] = u;
+                    creditMovie[credits] = moviePool[i];
+                    creditActor[credits++] = outTargets[e];
+                }
+            }
+        }
+        int[][] cast = group(movieTitles.size(), creditMovie, creditActor);
+
+        return new CSRGraph<V>(vertexNames, outOffsets, outTargets, inOffsets, inSources,
+                labelStart, labelLength, Arrays.copyOf(moviePool, poolSize), movieTitles.toArray(new String[0]),
+                cast[0], cast[1]);
+    }
+
+    /**
+     * Build the co-star graph straight from movie-actor credits given as dense int ids, without any intermediate graph.
+     * Two distinct actors get an edge in both directions labelled with every movie they share.
+     * @param actors actor id --> actor, with no duplicates
+     * @param movieTitles movie id --> movie title
+     * @param creditMovie movie id of every credit
+     * @param creditActor actor id of every credit, aligned with creditMovie
+     * @param <V> generic type vertex
+     * @return the compact graph
+     */
+    public static <V> CSRGraph<V> fromCredits(V[] actors, String[] movieTitles, int[] creditMovie, int[] creditActor) {
+        return fromCredits(actors, movieTitles, creditMovie, creditActor, 1);
+    }
+
+    /**
+     * Build the co-star graph straight from movie-actor credits, expanding the casts on several threads.
+     * With more than one thread the rows are built in passes over ranges of actors on a fork-join pool: count each
+     * row's co-stars and its share of the movie pool, prefix-sum the counts into offsets, fill every row in place,
+     * then copy each edge's label run from the row of its lower-id end. The result is the same as the serial build.
+     * Grouping the credits by movie and by actor stays serial; it is linear in the credits, while the rows cost the
+     * sum of the squared casts.
+     * @param actors actor id --> actor, with no duplicates
+     * @param movieTitles movie id --> movie title
+     * @param creditMovie movie id of every credit
+     * @param creditActor actor id of every credit, aligned with creditMovie
+     * @param threads number of threads, 1 for the serial build
+     * @param <V> generic type vertex
+     * @return the compact graph
+     */
+    public static <V> CSRGraph<V> fromCredits(V[] actors, String[] movieTitles, int[] creditMovie, int[] creditActor, int threads) {
+        int n = actors.length;
+        int[][] cast = group(movieTitles.length, creditMovie, creditActor);   // movie --> actors, ascending
+        int[][] filmography = group(n, creditActor, creditMovie);           // actor --> movies, ascending
+        int[] castOffsets = cast[0], castActors = cast[1];
+        int[] filmOffsets = filmography[0], filmMovies = filmography[1];
+        if (threads > 1) {
+            return fromCredits(actors, movieTitles, castOffsets, castActors, filmOffsets, filmMovies, threads);
+        }
+
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[16];
+        int[] labelStart = new int[16];
+        int[] labelLength = new int[16];
+        int[] moviePool = new int[16];
+        int edges = 0, poolSize = 0;
+
+        Row row = new Row(n);
+        for (int u = 0; u < n; u++) {
+            int distinct = row.gather(u, filmOffsets, filmMovies, castOffsets, castActors);
+            if (edges + distinct > outTargets.length) {
+                int size = Math.max(outTargets.length * 2, edges + distinct);
+                outTargets = Arrays.copyOf(outTargets, size);
+                labelStart = Arrays.copyOf(labelStart, size);
+                labelLength = Arrays.copyOf(labelLength, size);
+            }
+            int rowStart = edges;
+            for (int i = 0; i < distinct; i++) {
+                int v = row.coStars[i];
+                int e = edges++;
+                outTargets[e] = v;
+                labelLength[e] = row.slotCount[i];
+                if (v < u) { // the v->u run was written when v's row was built
+                    labelStart[e] = labelStart[find(outOffsets, outTargets, v, u)];
+                }
+                else {
+                    labelStart[e] = poolSize;
+                    poolSize += labelLength[e];
+                }
+            }
+            if (poolSize > moviePool.length) moviePool = Arrays.copyOf(moviePool, Math.max(poolSize, moviePool.length * 2));
+            row.fill(u, outTargets, rowStart, labelStart, moviePool);
+            outOffsets[u + 1] = edges;
+        }
+
+        outTargets = Arrays.copyOf(outTargets, edges);
+        // the co-star relation is symmetric, so in rows are the out rows
+        return new CSRGraph<V>(actors.clone(), outOffsets, outTargets, outOffsets, outTargets,
+                Arrays.copyOf(labelStart, edges), Arrays.copyOf(labelLength, edges),
+                Arrays.copyOf(moviePool, poolSize), movieTitles.clone(), castOffsets, castActors);
+    }
+
+    /**
+     * The parallel passes of fromCredits, over credits already grouped by movie and by actor
+     */
+    private static <V> CSRGraph<V> fromCredits(V[] actors, String[] movieTitles, int[] castOffsets, int[] castActors,
+                                               int[] filmOffsets, int[] filmMovies, int threads) {
+        int n = actors.length;
+        int[] outOffsets = new int[n + 1];
+        long[] poolOffsets = new long[n + 1]; // movies of u's runs to higher-id co-stars start at poolOffsets[u]
+        ThreadLocal<Row> rows = ThreadLocal.withInitial(() -> new Row(n));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            // count: co-stars of each row, and movies in its runs to higher ids, which are the runs it owns
+            forEachActor(pool, n, threads * 8, u -> {
+                Row row = rows.get();
+                int distinct = row.gather(u, filmOffsets, filmMovies, castOffsets, castActors);
+                long owned = 0;
+                for (int i = 0; i < distinct; i++) {
+                    if (row.coStars[i] > u) owned += row.slotCount[i];
+                }
+                outOffsets[u + 1] = distinct;
+                poolOffsets[u + 1] = owned;
+            });
+            for (int u = 0; u < n; u++) {
+                outOffsets[u + 1] += outOffsets[u];
+                poolOffsets[u + 1] += poolOffsets[u];
+            }
+            if (poolOffsets[n] > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many shared credits for one graph: " + poolOffsets[n]);
+            }
+
+            // fill: each row writes its own slice of the edge arrays and the runs it owns
+            int edges = outOffsets[n];
+            int[] outTargets = new int[edges], labelStart = new int[edges], labelLength = new int[edges];
+            int[] moviePool = new int[(int) poolOffsets[n]];
+            forEachActor(pool, n, threads * 8, u -> {
+                Row row = rows.get();
+                int distinct = row.gather(u, filmOffsets, filmMovies, castOffsets, castActors);
+                int rowStart = outOffsets[u], next = (int) poolOffsets[u];
+                for (int i = 0; i < distinct; i++) {
+                    int e = rowStart + i, v = row.coStars[i];
+                    outTargets[e] = v;
+                    labelLength[e] = row.slotCount[i];
+                    if (v > u) {
+                        labelStart[e] = next;
+                        next += labelLength[e];
+                    }
+                }
+                row.fill(u, outTargets, rowStart, labelStart, moviePool);
+            });
+
+            // link: an edge to a lower id shares the run its other end owns, now that every row is in place
+            forEachActor(pool, n, threads * 8, u -> {
+                for (int e = outOffsets[u]; e < outOffsets[u + 1] && outTargets[e] < u; e++) {
+                    labelStart[e] = labelStart[find(outOffsets, outTargets, outTargets[e], u)];
+                }
+            });
+            return new CSRGraph<V>(actors.clone(), outOffsets, outTargets, outOffsets, outTargets,
+                    labelStart, labelLength, moviePool, movieTitles.clone(), castOffsets, castActors);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Run a body for every actor id, in contiguous ranges on a pool, and wait for all of them
+     */
+    private static void forEachActor(ForkJoinPool pool, int n, int ranges, IntConsumer body) {
+        List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>();
+        for (int r = 0; r < ranges; r++) {
+            int from = (int) ((long) n * r / ranges), to = (int) ((long) n * (r + 1) / ranges);
+            tasks.add(pool.submit(() -> {
+                for (int u = from; u < to; u++) body.accept(u);
+            }));
+        }
+        for (ForkJoinTask<?> task : tasks) {
+            task.join();
+        }
+    }
+
+    /**
+     * Scratch for building one actor's row at a time: co-star slots stamped with the current gather, since the
+     * parallel build gathers every row twice on whichever thread picks it up
+     */
+    private static class Row {
+        private final int[] stamp;           // co-star --> last gather it was seen in
+        private final int[] slot;            // co-star --> its index in coStars, for the current row
+        int[] coStars = new int[16];         // co-stars of the current row, ascending
+        int[] slotCount = new int[16];       // movies shared with each co-star slot
+        private int[] pairCoStar = new int[16], pairMovie = new int[16]; // every (co-star, movie) credit pair
+        private int pairs, distinct;                                   // sizes of the gathered row
+        private int gathers;                                           // rows gathered so far
+
+        Row(int n) {
+            stamp = new int[n];
+            Arrays.fill(stamp, -1);
+            slot = new int[n];
+        }
+
+        /**
+         * Gather an actor's co-stars and the movies shared with each
+         * @return number of distinct co-stars, in coStars[0 .. distinct) with their counts in slotCount
+         */
+        int gather(int u, int[] filmOffsets, int[] filmMovies, int[] castOffsets, int[] castActors) {
+            distinct = 0;
+            pairs = 0;
+            int visit = gathers++;
+            for (int f = filmOffsets[u]; f < filmOffsets[u + 1]; f++) {
+                int m = filmMovies[f];
+                for (int c = castOffsets[m]; c < castOffsets[m + 1]; c++) {
+                    int v = castActors[c];
+                    if (v == u) continue;
+                    if (stamp[v] != visit) {
+                        stamp[v] = visit;
+                        if (distinct == coStars.length) coStars = Arrays.copyOf(coStars, distinct * 2);
+                        coStars[distinct++] = v;
+                    }
+                    if (pairs == pairCoStar.length) {
+                        pairCoStar = Arrays.copyOf(pairCoStar, pairs * 2);
+                        pairMovie = Arrays.copyOf(pairMovie, pairs * 2);
+                    }
+                    pairCoStar[pairs] = v;
+                    pairMovie[pairs++] = m;
+                }
+            }
+            // rank co-stars by id, then count the shared movies of each; movies arrive in ascending order
+            Arrays.sort(coStars, 0, distinct);
+            if (slotCount.length < distinct) slotCount = new int[Math.max(distinct, slotCount.length * 2)];
+            Arrays.fill(slotCount, 0, distinct, 0);
+            for (int i = 0; i < distinct; i++) slot[coStars[i]] = i;
+            for (int p = 0; p < pairs; p++) slotCount[slot[pairCoStar[p]]]++;
+            return distinct;
+        }
+
+        /**
+         * Write the movies of the runs the gathered row owns, those to higher-id co-stars, at their label starts;
+         * slotCount is used up as write cursors
+         */
+        void fill(int u, int[] outTargets, int rowStart, int[] labelStart, int[] moviePool) {
+            Arrays.fill(slotCount, 0, distinct, 0);
+            for (int p = 0; p < pairs; p++) {
+                int i = slot[pairCoStar[p]];
+                int e = rowStart + i;
+                if (outTargets[e] > u) {
+                    moviePool[labelStart[e] + slotCount[i]++] = pairMovie[p];
+                }
+            }
+        }
+    }
+
+    public int numVertices() {
+        return vertexNames.length;
+    }
+
+    public int numEdges() {
+        return outTargets.length;
+    }
+
+    public Iterable<V> vertices() {
+        return Collections.unmodifiableList(Arrays.asList(vertexNames));
+    }
+
+    public boolean hasVertex(V v) {
+        return ids.containsKey(v);
+    }
+
+    public int outDegree(V v) {
+        int u = ids.get(v);
+        return outOffsets[u + 1] - outOffsets[u];
+    }
+
+    public int inDegree(V v) {
+        int u = ids.get(v);
+        return inOffsets[u + 1] - inOffsets[u];
+    }
+
+    public Iterable<V> outNeighbors(V v) {
+        int u = ids.get(v);
+        return new Neighbors(outTargets, outOffsets[u], outOffsets[u + 1]);
+    }
+
+    public Iterable<V> inNeighbors(V v) {
+        int u = ids.get(v);
+        return new Neighbors(inSources, inOffsets[u], inOffsets[u + 1]);
+    }
+
+    public boolean hasEdge(V u, V v) {
+        Integer from = ids.get(u), to = ids.get(v);
+        return from != null && to != null && find(outOffsets, outTargets, from, to) >= 0;
+    }
+
+    /**
+     * Titles of the movies on an edge, resolved from the movie ids when asked for
+     * @return a new set of titles, or null if there is no such edge
+     */
+    public Set<String> getLabel(V u, V v) {
+        int e = find(outOffsets, outTargets, ids.get(u), ids.get(v));
+        if (e < 0) {
+            return null;
+        }
+        Set<String> titles = new HashSet<String>();
+        for (int i = labelStart[e]; i < labelStart[e] + labelLength[e]; i++) {
+            titles.add(movieTitles[moviePool[i]]);
+        }
+        return titles;
+    }
+
+    public void insertVertex(V v) {
+        throw new UnsupportedOperationException("CSRGraph is frozen");
+    }
+
+    public void insertDirected(V u, V v, Set<String> e) {
+        throw new UnsupportedOperationException("CSRGraph is frozen");
+    }
+
+    public void insertUndirected(V u, V v, Set<String> e) {
+        throw new UnsupportedOperationException("CSRGraph is frozen");
+    }
+
+    public void removeVertex(V v) {
+        throw new UnsupportedOperationException("CSRGraph is frozen");
+    }
+
+    public void removeDirected(V u, V v) {
+        throw new UnsupportedOperationException("CSRGraph is frozen");
+    }
+
+    public void removeUndirected(V u, V v) {
+        throw new UnsupportedOperationException("CSRGraph is frozen");
+    }
+
+    /**
+     * Dense id of a vertex
+     * @param v the vertex
+     * @return its id, or -1 if it is not in the graph
+     */
+    public int idOf(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Vertex with a dense id
+     * @param id the id
+     * @return the vertex
+     */
+    public V vertexAt(int id) {
+        return vertexNames[id];
+    }
+
+    /**
+     * Row offsets of the out adjacency; the array is shared and must not be modified
+     * @return offsets with numVertices()+1 entries
+     */
+    public int[] outOffsets() {
+        return outOffsets;
+    }
+
+    /**
+     * Targets of the out adjacency, each row sorted by id; the array is shared and must not be modified
+     * @return targets with numEdges() entries
+     */
+    public int[] outTargets() {
+        return outTargets;
+    }
+
+    /**
+     * Row offsets of the in adjacency; the array is shared and must not be modified
+     * @return offsets with numVertices()+1 entries
+     */
+    public int[] inOffsets() {
+        return inOffsets;
+    }
+
+    /**
+     * Sources of the in adjacency, each row sorted by id; the array is shared and must not be modified
+     * @return sources with numEdges() entries
+     */
+    public int[] inSources() {
+        return inSources;
+    }
+
+    /**
+     * Movie ids on the edge between two vertex ids
+     * @param u source id
+     * @param v target id
+     * @return sorted movie ids, empty if there is no such edge
+     */
+    public int[] movieIds(int u, int v) {
+        int e = find(outOffsets, outTargets, u, v);
+        if (e < 0) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(moviePool, labelStart[e], labelStart[e] + labelLength[e]);
+    }
+
+    /**
+     * Title of a movie id used in the labels
+     * @param movieId the movie id
+     * @return the title
+     */
+    public String movieTitle(int movieId) {
+        return movieTitles[movieId];
+    }
+
+    /**
+     * @return true if the in adjacency is the out adjacency, as in a co-star graph built from credits
+     */
+    boolean isSymmetric() {
+        return inOffsets == outOffsets && inSources == outTargets;
+    }
+
+    /**
+     * Raw arrays for GraphSnapshot; they are shared and must not be modified
+     */
+    V[] vertexArray() {
+        return vertexNames;
+    }
+
+    int[] labelStarts() {
+        return labelStart;
+    }
+
+    int[] labelLengths() {
+        return labelLength;
+    }
+
+    int[] moviePool() {
+        return moviePool;
+    }
+
+    String[] movieTitles() {
+        return movieTitles;
+    }
+
+    /**
+     * Row offsets of movie --> cast; the array is shared and must not be modified
+     * @return offsets with one entry per movie id plus one
+     */
+    public int[] castOffsets() {
+        return castOffsets;
+    }
+
+    /**
+     * Cast of every movie, each row ascending; the array is shared and must not be modified
+     * @return actor ids
+     */
+    public int[] castActors() {
+        return castActors;
+    }
+
+    /**
+     * @return estimated bytes of the arrays, counting in and out arrays once when they are shared;
+     * the vertex and movie names themselves are not counted
+     */
+    public long memoryBytes() {
+        long ints = outOffsets.length + outTargets.length + labelStart.length + labelLength.length + moviePool.length
+                + castOffsets.length + castActors.length;
+        if (inSources != outTargets) {
+            ints += inOffsets.length + inSources.length;
+        }
+        return 4 * ints + 8L * (vertexNames.length + movieTitles.length);
+    }
+
+    /**
+     * Rebuild a graph from the raw arrays written by GraphSnapshot; pass the out arrays as the in arrays
+     * for a symmetric graph
+     */
+    static <V> CSRGraph<V> fromArrays(V[] vertexNames, int[] outOffsets, int[] outTargets, int[] inOffsets, int[] inSources,
+                                      int[] labelStart, int[] labelLength, int[] moviePool, String[] movieTitles,
+                                      int[] castOffsets, int[] castActors) {
+        return new CSRGraph<V>(vertexNames, outOffsets, outTargets, inOffsets, inSources,
+                labelStart, labelLength, moviePool, movieTitles, castOffsets, castActors);
+    }
+
+    /**
+     * Returns a string representation of the vertex and edge lists.
+     */
+    public String toString() {
+        StringBuilder edges = new StringBuilder("{");
+        for (int u = 0; u < vertexNames.length; u++) {
+            if (u > 0) edges.append(", ");
+            edges.append(vertexNames[u]).append("={");
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                if (e > outOffsets[u]) edges.append(", ");
+                edges.append(vertexNames[outTargets[e]]).append('=').append(getLabel(vertexNames[u], vertexNames[outTargets[e]]));
+            }
+            edges.append('}');
+        }
+        return "Vertices: " + Arrays.toString(vertexNames) + "\nOut edges: " + edges.append('}');
+    }
+
+    /**
+     * Binary search for the edge u->v in a row sorted by id
+     * @return index of the edge, or -1 if there is none
+     */
+    private static int find(int[] offsets, int[] targets, int u, int v) {
+        int e = Arrays.binarySearch(targets, offsets[u], offsets[u + 1], v);
+        return e < 0 ? -1 : e;
+    }
+
+    /**
+     * Counting sort of (key, value) pairs into rows keyed 0..keys-1, values ascending and deduplicated per row
+     * @return {offsets, values}
+     */
+    static int[][] group(int keys, int[] key, int[] value) {
+        int[] offsets = new int[keys + 1];
+        for (int k : key) offsets[k + 1]++;
+        for (int k = 0; k < keys; k++) offsets[k + 1] += offsets[k];
+        int[] values = new int[key.length];
+        int[] next = Arrays.copyOf(offsets, keys);
+        for (int i = 0; i < key.length; i++) values[next[key[i]]++] = value[i];
+        // sort and squeeze out repeated credits in place
+        int size = 0;
+        int[] squeezed = new int[keys + 1];
+        for (int k = 0; k < keys; k++) {
+            Arrays.sort(values, offsets[k], offsets[k + 1]);
+            for (int i = offsets[k]; i < offsets[k + 1]; i++) {
+                if (i == offsets[k] || values[i] != values[i - 1]) values[size++] = values[i];
+            }
+            squeezed[k + 1] = size;
+        }
+        return new int[][] {squeezed, values};
+    }
+
+    /**
+     * Iterable over one row of ids, mapped back to vertices
+     */
+    private class Neighbors implements Iterable<V> {
+        private final int[] row;
+        private final int start, end;
+
+        Neighbors(int[] row, int start, int end) {
+            this.row = row;
+            this.start = start;
+            this.end = end;
+        }
+
+        public Iterator<V> iterator() {
+            return new Iterator<V>() {
+                private int i = start;
+
+                public boolean hasNext() {
+                    return i < end;
+                }
+
+                public V next() {
+                    if (i >= end) throw new NoSuchElementException();
+                    return vertexNames[row[i++]];
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,293 @@
+import java.util.*;
+
+/**
+ * Connected components of a graph, so that reachability questions need no search: whether two actors are
+ * connected, how many actors a center reaches and which actors it cannot reach.
+ * Components are found with union-find over the casts (or the edges of a graph without casts), and each component's
+ * members are kept grouped in one int array, so a component or everything outside it is a slice of that array.
+ * New co-star edges merge components in place. A removed edge may split one, which union-find cannot undo: a
+ * search from both ends of the edge looks for another path between them, and only if it finds none within
+ * SPLIT_SEARCH vertices is the index rebuilt on the next question.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class ComponentIndex<V> {
+    public static final int SPLIT_SEARCH = 4096; // most vertices searched for a path around a removed edge
+    private final IndexedGraph<V> graph; // graph the components are of
+    private int[] parent;                // union-find forest: id --> parent id, a root is its own parent
+    private int[] size;                  // root id --> number of vertices in its component
+    private int n;                       // number of indexed ids
+    private int count;                   // number of components
+    private int[] members;               // ids grouped by component, ascending within a component
+    private int[] start;                 // root id --> where its component starts in members
+    private boolean grouped;             // members and start are current
+    private boolean stale;               // an edge was removed since the last build
+
+    /**
+     * Find and group the components of a graph; an index that is not updated afterwards can be read by any number
+     * of threads, since its only writes are path halving, which leaves every id under the same root
+     * @param graph the graph
+     */
+    public ComponentIndex(IndexedGraph<V> graph) {
+        this.graph = graph;
+        build();
+        grouped();
+    }
+
+    /**
+     * @return the graph the components are of
+     */
+    public IndexedGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * @return number of components, an actor with no co-stars being one on its own
+     */
+    public int count() {
+        current();
+        return count;
+    }
+
+    /**
+     * @param u a vertex
+     * @param v another vertex
+     * @return true if there is a path between them
+     */
+    public boolean connected(V u, V v) {
+        current();
+        int a = graph.idOf(u), b = graph.idOf(v);
+        return a >= 0 && b >= 0 && find(a) == find(b);
+    }
+
+    /**
+     * @param v a vertex
+     * @return number of vertices connected to it, itself included, or 0 if it is not in the graph
+     */
+    public int componentSize(V v) {
+        current();
+        int id = graph.idOf(v);
+        return id < 0 ? 0 : size[find(id)];
+    }
+
+    /**
+     * The vertices connected to a vertex, itself included
+     * @param v a vertex
+     * @return a read-only view in id order, empty if v is not in the graph; copy it to keep it across updates
+     */
+    public List<V> members(V v) {
+        grouped();
+        int id = graph.idOf(v);
+        if (id < 0) return slice(0, 0, 0, 0);
+        int from = start[find(id)];
+        return slice(from, from + size[find(id)], 0, 0);
+    }
+
+    /**
+     * The vertices with no path to a vertex
+     * @param v a vertex
+     * @return a read-only view, grouped by component; every vertex if v is not in the graph
+     */
+    public List<V> outside(V v) {
+        grouped();
+        int id = graph.idOf(v);
+        if (id < 0) return slice(0, n, 0, 0);
+        int from = start[find(id)];
+        return slice(0, from, from + size[find(id)], n);
+    }
+
+    /**
+     * Every id, grouped by component; a component starts at some index i and runs for componentSize(ids[i]) ids
+     * @return the grouped ids, which must only be read
+     */
+    int[] groupedIds() {
+        grouped();
+        return members;
+    }
+
+    /**
+     * @param id id of a vertex
+     * @return number of vertices connected to it, itself included
+     */
+    int componentSize(int id) {
+        current();
+        return size[find(id)];
+    }
+
+    /**
+     * Record that an actor gained co-stars, adding any vertex the graph has gained since the index was built
+     * @param actor the actor
+     * @param coStars its new co-stars
+     */
+    public void linked(V actor, List<V> coStars) {
+        if (n < graph.numVertices()) {
+            grow(graph.numVertices());
+        }
+        for (V coStar : coStars) {
+            union(graph.idOf(actor), graph.idOf(coStar));
+        }
+    }
+
+    /**
+     * Record that an actor lost co-stars
+     * @param actor the actor
+     * @param coStars the co-stars it no longer has
+     */
+    public void unlinked(V actor, List<V> coStars) {
+        for (V coStar : coStars) {
+            if (stale) return;
+            stale = !stillConnected(graph.idOf(actor), graph.idOf(coStar));
+        }
+    }
+
+    /**
+     * Search from both ends of a removed edge at once, one vertex at a time from the side with the shorter queue,
+     * until the two searches meet
+     * @return true if a path between a and b was found; false if one side ran out of vertices, so the component
+     * split, or the searches reached SPLIT_SEARCH vertices without meeting
+     */
+    private boolean stillConnected(int a, int b) {
+        Map<Integer, Boolean> fromA = new HashMap<Integer, Boolean>(); // searched id --> true if found from a
+        ArrayDeque<Integer> queueA = new ArrayDeque<Integer>(), queueB = new ArrayDeque<Integer>();
+        fromA.put(a, true);
+        fromA.put(b, false);
+        queueA.add(a);
+        queueB.add(b);
+        while (!queueA.isEmpty() && !queueB.isEmpty() && fromA.size() < SPLIT_SEARCH) {
+            boolean side = queueA.size() <= queueB.size();
+            ArrayDeque<Integer> queue = side ? queueA : queueB;
+            for (V neighbor : graph.outNeighbors(graph.vertexAt(queue.remove()))) {
+                int id = graph.idOf(neighbor);
+                Boolean found = fromA.putIfAbsent(id, side);
+                if (found == null) queue.add(id);
+                else if (found != side) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Union every cast, or every edge when the graph has no casts
+     */
+    private void build() {
+        n = 0;
+        count = 0;
+        parent = new int[0];
+        size = new int[0];
+        grow(graph.numVertices());
+        if (graph instanceof BipartiteGraph) {
+            unionCasts(((BipartiteGraph<V>) graph).castOffsets(), ((BipartiteGraph<V>) graph).castActors());
+        }
+        else if (graph instanceof CSRGraph) {
+            unionCasts(((CSRGraph<V>) graph).castOffsets(), ((CSRGraph<V>) graph).castActors());
+        }
+        else {
+            for (int id = 0; id < n; id++) {
+                for (V neighbor : graph.outNeighbors(graph.vertexAt(id))) {
+                    union(id, graph.idOf(neighbor));
+                }
+            }
+        }
+        stale = false;
+    }
+
+    /**
+     * Everyone in a movie is connected, so each cast member is united with the first one
+     */
+    private void unionCasts(int[] castOffsets, int[] castActors) {
+        for (int m = 0; m + 1 < castOffsets.length; m++) {
+            for (int c = castOffsets[m] + 1; c < castOffsets[m + 1]; c++) {
+                union(castActors[castOffsets[m]], castActors[c]);
+            }
+        }
+    }
+
+    /**
+     * Index ids n .. capacity-1, each a component on its own
+     */
+    private void grow(int capacity) {
+        parent = Arrays.copyOf(parent, capacity);
+        size = Arrays.copyOf(size, capacity);
+        for (int id = n; id < capacity; id++) {
+            parent[id] = id;
+            size[id] = 1;
+        }
+        count += capacity - n;
+        n = capacity;
+        grouped = false;
+    }
+
+    /**
+     * Root of an id's component, halving the path on the way
+     */
+    private int find(int id) {
+        while (parent[id] != id) {
+            parent[id] = parent[parent[id]];
+            id = parent[id];
+        }
+        return id;
+    }
+
+    /**
+     * Merge two components, the smaller under the larger
+     */
+    private void union(int a, int b) {
+        a = find(a);
+        b = find(b);
+        if (a == b) return;
+        if (size[a] < size[b]) {
+            int swap = a;
+            a = b;
+            b = swap;
+        }
+        parent[b] = a;
+        size[a] += size[b];
+        count--;
+        grouped = false;
+    }
+
+    private void current() {
+        if (stale) {
+            build();
+        }
+    }
+
+    /**
+     * Group the ids by component with a counting sort, components in order of their roots
+     */
+    private void grouped() {
+        current();
+        if (grouped) return;
+        start = new int[n];
+        int next = 0;
+        for (int id = 0; id < n; id++) {
+            if (parent[id] == id) {
+                start[id] = next;
+                next += size[id];
+            }
+        }
+        int[] fill = start.clone();
+        members = new int[n];
+        for (int id = 0; id < n; id++) {
+            members[fill[find(id)]++] = id;
+        }
+        grouped = true;
+    }
+
+    /**
+     * Read-only view of members[from .. to) followed by members[from2 .. to2)
+     */
+    private List<V> slice(int from, int to, int from2, int to2) {
+        int[] ids = members;
+        return new AbstractList<V>() {
+            public V get(int i) {
+                if (i < 0 || i >= size()) throw new IndexOutOfBoundsException("index " + i);
+                return graph.vertexAt(ids[i < to - from ? from + i : from2 + i - (to - from)]);
+            }
+
+            public int size() {
+                return to - from + to2 - from2;
+            }
+        };
+    }
+}
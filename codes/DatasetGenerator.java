@@ -0,0 +1,227 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Writes synthetic actors, movies and movie-actors files in the same pipe-delimited format as inputs/*.txt,
+ * at any size, for load and scaling tests.
+ * Cast sizes follow a power law (most movies have a few credited actors, a few have very many) and so does actor
+ * popularity (a few actors appear in a large share of the movies), which gives the scale-free co-star graph of
+ * real data. Credits are drawn and written one movie at a time, so only one cast is ever held in memory and
+ * files with tens of millions of credits stream out in constant memory. The same seed always writes the same files.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class DatasetGenerator {
+    private static final int DRAWS_PER_SEAT = 8; // popularity draws per seat before a cast is filled uniformly
+
+    private final int actors;              // number of actors
+    private final int movies;              // number of movies
+    private final long seed;               // random seed
+    private double castExponent = 2.0;     // power-law exponent of cast sizes
+    private double popularityExponent = 0.8; // power-law exponent of actor popularity (Zipf over popularity rank)
+    private int maxCast = 100;             // largest cast
+    private long credits;                  // credits written by the last write
+
+    /**
+     * @param actors number of actors
+     * @param movies number of movies
+     * @param seed random seed
+     */
+    public DatasetGenerator(int actors, int movies, long seed) {
+        if (actors < 1 || movies < 1) {
+            throw new IllegalArgumentException("Need at least one actor and one movie");
+        }
+        this.actors = actors;
+        this.movies = movies;
+        this.seed = seed;
+    }
+
+    /**
+     * @param exponent power-law exponent of cast sizes; larger means smaller casts
+     * @param max largest cast
+     * @return this generator
+     */
+    public DatasetGenerator castSizes(double exponent, int max) {
+        castExponent = checkExponent(exponent);
+        maxCast = Math.max(1, max);
+        return this;
+    }
+
+    /**
+     * @param exponent power-law exponent of actor popularity; larger means a few actors get more of the credits
+     * @return this generator
+     */
+    public DatasetGenerator popularity(double exponent) {
+        popularityExponent = checkExponent(exponent);
+        return this;
+    }
+
+    /**
+     * Rejection-inversion needs a non-increasing density, so exponents must be finite and not negative
+     */
+    private static double checkExponent(double exponent) {
+        if (!(exponent >= 0) || Double.isInfinite(exponent)) {
+            throw new IllegalArgumentException("Power-law exponent must be a finite number of at least 0, not " + exponent);
+        }
+        return exponent;
+    }
+
+    /**
+     * Write actors.txt, movies.txt and movie-actors.txt into a directory
+     * @param dir the directory, created if needed
+     * @return paths of the actors, movies and movie-actors files
+     * @throws IOException if a file cannot be written
+     */
+    public String[] write(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        String[] paths = {dir.resolve("actors.txt").toString(), dir.resolve("movies.txt").toString(),
+                dir.resolve("movie-actors.txt").toString()};
+        try (Writer out = open(paths[0])) {
+            for (int a = 0; a < actors; a++) out.write(a + "|Actor " + a + "\n");
+        }
+        try (Writer out = open(paths[1])) {
+            for (int m = 0; m < movies; m++) out.write(m + "|Movie " + m + "\n");
+        }
+        credits = writeCredits(paths[2]);
+        return paths;
+    }
+
+    /**
+     * @return number of credits written by the last write
+     */
+    public long credits() {
+        return credits;
+    }
+
+    /**
+     * Draw every movie's cast and write its credits; a cast has no actor twice.
+     * A cast is drawn by popularity until it is full or it has taken DRAWS_PER_SEAT draws a seat; the seats left then
+     * go to actors drawn uniformly, since filling a cast nearly as large as the pool by popularity alone would keep
+     * drawing the same few stars.
+     * @return number of credits written
+     */
+    private long writeCredits(String path) throws IOException {
+        Random random = new Random(seed);
+        Zipf castSize = new Zipf(Math.min(maxCast, actors), castExponent); // a cast cannot outnumber the actors
+        Zipf popularity = new Zipf(actors, popularityExponent);
+        long scramble = coprimeMultiplier(actors); // spreads popularity ranks over the ids
+        Set<Integer> cast = new HashSet<Integer>();
+        StringBuilder line = new StringBuilder();
+        long credits = 0;
+        try (Writer out = open(path)) {
+            for (int m = 0; m < movies; m++) {
+                cast.clear();
+                int size = castSize.sample(random);
+                for (long draws = 0; cast.size() < size; draws++) {
+                    int actor = draws < (long) DRAWS_PER_SEAT * size
+                            ? (int) ((popularity.sample(random) - 1) * scramble % actors)
+                            : random.nextInt(actors);
+                    if (cast.add(actor)) {
+                        line.setLength(0);
+                        line.append(m).append('|').append(actor).append('\n');
+                        out.append(line);
+                        credits++;
+                    }
+                }
+            }
+        }
+        return credits;
+    }
+
+    private static Writer open(String path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    /**
+     * A multiplier coprime with n, so that rank --> rank * multiplier % n is a permutation of 0..n-1
+     */
+    private static long coprimeMultiplier(int n) {
+        long multiplier = 2654435761L % n; // golden-ratio hash constant
+        while (n > 1 && gcd(multiplier, n) != 1) multiplier++;
+        return Math.max(1, multiplier);
+    }
+
+    private static long gcd(long a, long b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Zipf distribution over 1..n, P(k) proportional to k^-exponent, sampled by rejection-inversion
+     * (Hormann and Derflinger) in constant time and memory per sample, with no table of n probabilities
+     */
+    static class Zipf {
+        private final int n;
+        private final double exponent;
+        private final double hIntegralX1, hIntegralN, s;
+
+        Zipf(int n, double exponent) {
+            this.n = n;
+            this.exponent = exponent;
+            hIntegralX1 = hIntegral(1.5) - 1;
+            hIntegralN = hIntegral(n + 0.5);
+            s = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+        }
+
+        int sample(Random random) {
+            while (true) {
+                double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+                double x = hIntegralInverse(u);
+                int k = (int) Math.max(1, Math.min(n, (long) (x + 0.5)));
+                if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                    return k;
+                }
+            }
+        }
+
+        private double h(double x) {
+            return Math.exp(-exponent * Math.log(x));
+        }
+
+        private double hIntegral(double x) {
+            double logX = Math.log(x);
+            return helper2((1 - exponent) * logX) * logX;
+        }
+
+        private double hIntegralInverse(double x) {
+            double t = Math.max(-1, x * (1 - exponent));
+            return Math.exp(helper1(t) * x);
+        }
+
+        /** log1p(x) / x, accurate near 0 */
+        private static double helper1(double x) {
+            return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1.0 / 3 - 0.25 * x));
+        }
+
+        /** expm1(x) / x, accurate near 0 */
+        private static double helper2(double x) {
+            return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        // usage: DatasetGenerator <dir> <actors> <movies> [seed] [cast exponent] [max cast] [popularity exponent]
+        if (args.length < 3) {
+            System.err.println("usage: DatasetGenerator <dir> <actors> <movies> [seed] [cast exponent] [max cast] [popularity exponent]");
+            return;
+        }
+        DatasetGenerator generator;
+        try {
+            generator = new DatasetGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                    args.length > 3 ? Long.parseLong(args[3]) : 42);
+            if (args.length > 5) generator.castSizes(Double.parseDouble(args[4]), Integer.parseInt(args[5]));
+            if (args.length > 6) generator.popularity(Double.parseDouble(args[6]));
+        }
+        catch (IllegalArgumentException e) { // NumberFormatException included
+            System.err.println("Invalid argument: " + e.getMessage());
+            return;
+        }
+        long start = System.nanoTime();
+        String[] paths = generator.write(Paths.get(args[0]));
+        System.out.println("Wrote " + generator.credits() + " credits to " + Arrays.toString(paths) + " in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+}
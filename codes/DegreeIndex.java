@@ -0,0 +1,188 @@
+import java.util.*;
+
+/**
+ * Actors sorted by degree (number of co-stars), built once with the graph and kept up to date as edges come and go.
+ * Ids are held in one int array ordered by degree, with the offset where each degree value starts, so a degree range
+ * is found with two offset lookups and the highest degrees are the tail of the array.
+ * When an actor gains or loses a co-star it is swapped to the edge of its degree group and the boundary moves past it,
+ * so an update costs O(1) instead of a re-sort.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class DegreeIndex<V> {
+    private final IndexedGraph<V> graph; // graph the degrees are of
+    private int[] byDegree;              // ids ordered by degree, ascending
+    private int[] position;              // id --> index in byDegree
+    private int[] degree;                // id --> degree
+    private int[] start;                 // degree d occupies byDegree[start[d] .. start[d+1]); start[maxDegree+1] == size
+    private int maxDegree;               // largest degree
+    private int size;                    // number of indexed ids
+
+    /**
+     * Index every vertex of a graph by its out degree, with a counting sort
+     * @param graph the graph
+     */
+    public DegreeIndex(IndexedGraph<V> graph) {
+        this.graph = graph;
+        size = graph.numVertices();
+        degree = new int[size];
+        for (int id = 0; id < size; id++) {
+            degree[id] = graph.outDegree(graph.vertexAt(id));
+            maxDegree = Math.max(maxDegree, degree[id]);
+        }
+        start = new int[maxDegree + 2];
+        for (int id = 0; id < size; id++) {
+            start[degree[id] + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            start[d + 1] += start[d];
+        }
+        byDegree = new int[size];
+        position = new int[size];
+        int[] next = Arrays.copyOf(start, maxDegree + 1);
+        for (int id = 0; id < size; id++) {
+            position[id] = next[degree[id]]++;
+            byDegree[position[id]] = id;
+        }
+    }
+
+    /**
+     * @return the graph the degrees are of
+     */
+    public IndexedGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * @param v a vertex
+     * @return its degree, or -1 if it is not indexed
+     */
+    public int degree(V v) {
+        int id = graph.idOf(v);
+        return id < 0 || id >= size ? -1 : degree[id];
+    }
+
+    /**
+     * Vertices with a degree in a range, lowest degree first
+     * @param low smallest degree
+     * @param high largest degree
+     * @return a read-only view of the index; copy it to keep it across updates
+     */
+    public List<V> between(int low, int high) {
+        low = Math.max(low, 0);
+        high = Math.min(high, maxDegree);
+        return low > high ? slice(0, 0, false) : slice(start[low], start[high + 1], false);
+    }
+
+    /**
+     * The vertices with the highest degrees, highest first
+     * @param k number of vertices
+     * @return a read-only view of the index; copy it to keep it across updates
+     */
+    public List<V> top(int k) {
+        return slice(Math.max(0, size - Math.max(k, 0)), size, true);
+    }
+
+    /**
+     * Record that an actor gained co-stars, adding any vertex the graph has gained since the index was built
+     * @param actor the actor
+     * @param coStars its new co-stars
+     */
+    public void linked(V actor, List<V> coStars) {
+        while (size < graph.numVertices()) {
+            append(size);
+        }
+        for (V coStar : coStars) {
+            increment(graph.idOf(actor));
+            increment(graph.idOf(coStar));
+        }
+    }
+
+    /**
+     * Record that an actor lost co-stars
+     * @param actor the actor
+     * @param coStars the co-stars it no longer has
+     */
+    public void unlinked(V actor, List<V> coStars) {
+        for (V coStar : coStars) {
+            decrement(graph.idOf(actor));
+            decrement(graph.idOf(coStar));
+        }
+    }
+
+    /**
+     * Move an id from the end of its degree group to the start of the next one
+     */
+    private void increment(int id) {
+        int d = degree[id];
+        if (d == maxDegree) { // open a group for the new largest degree
+            if (maxDegree + 2 == start.length) {
+                start = Arrays.copyOf(start, 2 * start.length);
+            }
+            maxDegree++;
+            start[maxDegree + 1] = size;
+        }
+        swap(id, byDegree[start[d + 1] - 1]);
+        start[d + 1]--;
+        degree[id] = d + 1;
+    }
+
+    /**
+     * Move an id from the start of its degree group to the end of the previous one
+     */
+    private void decrement(int id) {
+        int d = degree[id];
+        swap(id, byDegree[start[d]]);
+        start[d]++;
+        degree[id] = d - 1;
+    }
+
+    /**
+     * Index a new id with degree 0: every group above 0 hands its first id to its own end, making room one place up
+     */
+    private void append(int id) {
+        if (size == byDegree.length) {
+            int capacity = Math.max(16, size + size / 2);
+            byDegree = Arrays.copyOf(byDegree, capacity);
+            position = Arrays.copyOf(position, capacity);
+            degree = Arrays.copyOf(degree, capacity);
+        }
+        for (int d = maxDegree; d >= 1; d--) {
+            if (start[d] < start[d + 1]) {
+                int moved = byDegree[start[d]];
+                byDegree[start[d + 1]] = moved;
+                position[moved] = start[d + 1];
+            }
+            start[d + 1]++;
+        }
+        byDegree[start[1]] = id;
+        position[id] = start[1];
+        degree[id] = 0;
+        start[1]++;
+        size++;
+    }
+
+    private void swap(int a, int b) {
+        int pa = position[a], pb = position[b];
+        byDegree[pa] = b;
+        byDegree[pb] = a;
+        position[a] = pb;
+        position[b] = pa;
+    }
+
+    /**
+     * Read-only view of byDegree[from .. to), reversed if asked
+     */
+    private List<V> slice(int from, int to, boolean reversed) {
+        return new AbstractList<V>() {
+            public V get(int i) {
+                if (i < 0 || i >= to - from) throw new IndexOutOfBoundsException("index " + i);
+                return graph.vertexAt(byDegree[reversed ? to - 1 - i : from + i]);
+            }
+
+            public int size() {
+                return to - from;
+            }
+        };
+    }
+}
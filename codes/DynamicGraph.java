@@ -0,0 +1,160 @@
+import java.util.*;
+
+/**
+ * Co-star graph that can take new and withdrawn credits while the game is running.
+ * It is an AdjacencyMapGraph that also remembers the cast of every movie, so adding or removing a single credit
+ * touches only the edges between that actor and the rest of the cast: a label gains or loses one title in place,
+ * and an edge appears or disappears only when the pair's first movie arrives or its last one leaves.
+ * Labels are MovieSets over one title table, so a title withdrawn from every cast keeps its number.
+ * Actors are numbered in the order they were inserted and are never removed, so their ids stay dense and
+ * shortest path trees over the graph can be repaired instead of recomputed.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class DynamicGraph<V> extends AdjacencyMapGraph<V, Set<String>> implements IndexedGraph<V> {
+    private final List<V> actors = new ArrayList<V>();                        // actor id --> actor
+    private final Map<V, Integer> ids = new HashMap<V, Integer>();            // actor --> actor id
+    private final Map<String, Set<V>> casts = new HashMap<String, Set<V>>(); // movie title --> cast
+    private final MovieSet.Titles titles = new MovieSet.Titles();             // shared by every label
+
+    /**
+     * Copy an indexed graph into an updatable one, keeping its actor ids.
+     * The u->v and v->u edges of a co-star pair share one label set.
+     * Every credit is added again, which takes time in the sum of the squared cast sizes.
+     * @param graph a CSRGraph or BipartiteGraph
+     * @param <V> generic type vertex
+     * @return the updatable graph
+     */
+    public static <V> DynamicGraph<V> thaw(IndexedGraph<V> graph) {
+        DynamicGraph<V> dynamic = new DynamicGraph<V>();
+        for (int id = 0; id < graph.numVertices(); id++) {
+            dynamic.insertVertex(graph.vertexAt(id));
+        }
+        int[] castOffsets, castActors;
+        String[] titles;
+        if (graph instanceof CSRGraph) {
+            CSRGraph<V> compact = (CSRGraph<V>) graph;
+            castOffsets = compact.castOffsets();
+            castActors = compact.castActors();
+            titles = compact.movieTitles();
+        }
+        else if (graph instanceof BipartiteGraph) {
+            BipartiteGraph<V> bipartite = (BipartiteGraph<V>) graph;
+            castOffsets = bipartite.castOffsets();
+            castActors = bipartite.castActors();
+            titles = bipartite.movieTitles();
+        }
+        else {
+            throw new IllegalArgumentException("Cannot thaw " + graph.getClass().getSimpleName());
+        }
+        for (int m = 0; m + 1 < castOffsets.length; m++) {
+            for (int c = castOffsets[m]; c < castOffsets[m + 1]; c++) {
+                dynamic.addCredit(titles[m], graph.vertexAt(castActors[c]));
+            }
+        }
+        return dynamic;
+    }
+
+    /**
+     * Add an actor to a movie's cast, inserting the actor and the movie if they are new
+     * @param title movie title
+     * @param actor the actor
+     * @return co-stars the actor was not linked to before, empty if the credit was already there
+     */
+    public List<V> addCredit(String title, V actor) {
+        insertVertex(actor);
+        Set<V> cast = casts.computeIfAbsent(title, t -> new HashSet<V>());
+        List<V> linked = new ArrayList<V>();
+        if (!cast.add(actor)) {
+            return linked;
+        }
+        for (V coStar : cast) {
+            if (coStar.equals(actor)) continue;
+            Set<String> movies = getLabel(actor, coStar);
+            if (movies == null) {
+                movies = new MovieSet(titles);
+                insertUndirected(actor, coStar, movies); // one set shared by both directions
+                linked.add(coStar);
+            }
+            movies.add(title);
+        }
+        return linked;
+    }
+
+    /**
+     * Take an actor out of a movie's cast; the movie is forgotten once its cast is empty, the actor is kept
+     * @param title movie title
+     * @param actor the actor
+     * @return co-stars the actor is no longer linked to, empty if there was no such credit
+     */
+    public List<V> removeCredit(String title, V actor) {
+        Set<V> cast = casts.get(title);
+        List<V> unlinked = new ArrayList<V>();
+        if (cast == null || !cast.remove(actor)) {
+            return unlinked;
+        }
+        if (cast.isEmpty()) {
+            casts.remove(title);
+        }
+        for (V coStar : cast) {
+            Set<String> movies = getLabel(actor, coStar);
+            movies.remove(title);
+            if (movies.isEmpty()) { // that was the only movie they shared
+                removeUndirected(actor, coStar);
+                unlinked.add(coStar);
+            }
+        }
+        return unlinked;
+    }
+
+    /**
+     * @param title movie title
+     * @return the movie's cast, empty if the movie is not in the graph
+     */
+    public Set<V> castOf(String title) {
+        Set<V> cast = casts.get(title);
+        return cast == null ? new HashSet<V>() : Collections.unmodifiableSet(cast);
+    }
+
+    /**
+     * @param title movie title
+     * @return true if at least one actor is credited in the movie
+     */
+    public boolean hasMovie(String title) {
+        return casts.containsKey(title);
+    }
+
+    /**
+     * Actors in id order
+     */
+    @Override
+    public Iterable<V> vertices() {
+        return Collections.unmodifiableList(actors);
+    }
+
+    @Override
+    public void insertVertex(V v) {
+        if (!hasVertex(v)) {
+            super.insertVertex(v);
+            ids.put(v, actors.size());
+            actors.add(v);
+        }
+    }
+
+    /**
+     * Actors are never removed, so that their ids stay dense
+     */
+    @Override
+    public void removeVertex(V v) {
+        throw new UnsupportedOperationException("DynamicGraph keeps every actor");
+    }
+
+    public int idOf(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    public V vertexAt(int id) {
+        return actors.get(id);
+    }
+}
@@ -0,0 +1,316 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * One player's game over a shared bacon graph: the session owns its center of the universe and its point-to-point
+ * search, while the graph, the closeness engine, the degree index and the cache of shortest path trees are shared
+ * by every session.
+ * A session only reads its tree, so two players on the same center share one.
+ * Sessions never touch BaconGame's static fields, so any number of them can run at once, one thread per session.
+ * Every game command except the credit updates is answered here, for the BaconGame prompt as for the server and
+ * batch mode; BaconGame handles + and - itself and starts a new session over the changed graph.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class GameSession {
+    public static final long SAMPLE_SEED = 42; // seed of the sampled closeness, so a repeated c <#>,<samples> agrees
+    public static final int PAGE = 100;        // actors i, s and d list when the command gives no limit
+    private final IndexedGraph<String> graph;                         // shared, never modified
+    private final SeparationEngine<String, Set<String>> separations;  // shared, thread-safe
+    private final TreeCache<String> trees;                            // shared, thread-safe
+    private final DegreeIndex<String> degrees;                        // shared, only read
+    private final ComponentIndex<String> components;                  // shared, only read
+    private final NameIndex names;                                    // shared, only read
+    private final GraphAnalytics<String> analytics;                   // shared, synchronized
+    private final BidirectionalSearch<String> pathSearch;             // this session's point-to-point search
+    private ShortestPathTree<String> tree;                             // tree of this session's center, read only
+    private String center;                                            // this session's center of the universe
+
+    /**
+     * Start a session with its own center
+     * @param graph the shared graph, which must not change while sessions use it
+     * @param separations the shared closeness engine over the same graph
+     * @param trees the shared tree cache over the same graph
+     * @param degrees the shared degree index over the same graph
+     * @param components the shared component index over the same graph
+     * @param names the shared index of the graph's actor names
+     * @param analytics the shared eccentricity and sampled closeness analytics over the same graph
+     * @param center the first center of the universe
+     */
+    public GameSession(IndexedGraph<String> graph, SeparationEngine<String, Set<String>> separations,
+                       TreeCache<String> trees, DegreeIndex<String> degrees, ComponentIndex<String> components,
+                       NameIndex names, GraphAnalytics<String> analytics, String center) {
+        this(graph, separations, trees, degrees, components, names, analytics, center,
+                graph.hasVertex(center) ? trees.get(center) : new ShortestPathTree<String>(graph));
+    }
+
+    /**
+     * Start a session with its own center and the center's tree, already fetched from the shared cache, so a caller
+     * that holds the tree does not search again if the cache has since evicted it
+     * @param graph the shared graph, which must not change while sessions use it
+     * @param separations the shared closeness engine over the same graph
+     * @param trees the shared tree cache over the same graph
+     * @param degrees the shared degree index over the same graph
+     * @param components the shared component index over the same graph
+     * @param names the shared index of the graph's actor names
+     * @param analytics the shared eccentricity and sampled closeness analytics over the same graph
+     * @param center the first center of the universe
+     * @param tree the center's shortest path tree, or an empty tree if the center is not in the graph
+     */
+    public GameSession(IndexedGraph<String> graph, SeparationEngine<String, Set<String>> separations,
+                       TreeCache<String> trees, DegreeIndex<String> degrees, ComponentIndex<String> components,
+                       NameIndex names, GraphAnalytics<String> analytics, String center, ShortestPathTree<String> tree) {
+        this.graph = graph;
+        this.separations = separations;
+        this.trees = trees;
+        this.degrees = degrees;
+        this.components = components;
+        this.names = names;
+        this.analytics = analytics;
+        this.pathSearch = new BidirectionalSearch<String>(graph);
+        this.center = center;
+        this.tree = tree;
+    }
+
+    /**
+     * @return the session's center of the universe
+     */
+    public String center() {
+        return center;
+    }
+
+    /**
+     * @return the session's shortest path tree
+     */
+    public ShortestPathTree<String> tree() {
+        return tree;
+    }
+
+    /**
+     * Line the REPL prints about the center: connected actors and average separation
+     * @return the summary
+     */
+    public String summary() {
+        SeparationStats stats = tree.stats();
+        return center + " is now the center of the acting universe, connected to " + (stats.reachedCount() - 1) + "/"
+                + graph.numVertices() + " actors with average separation of " + stats.averageSeparation();
+    }
+
+    /**
+     * Run one game command and collect what it prints
+     * @param command the command line
+     * @return the lines the command prints, without a trailing newline
+     */
+    public String execute(String command) {
+        StringBuilder out = new StringBuilder();
+        execute(command, out);
+        return out.toString();
+    }
+
+    /**
+     * Run one game command, as typed at the BaconGame prompt; + and - change the graph, which only BaconGame may do,
+     * so here they are refused. With metrics on, each command's latency is recorded under its key.
+     * The lists of i, s and d are written to out a page at a time as they are read, PAGE actors unless the command
+     * gives a limit; the other answers are short and written once they are complete.
+     * @param command the command line
+     * @param out where the lines the command prints go, without a trailing newline
+     */
+    public void execute(String command, Appendable out) {
+        StringBuilder text = new StringBuilder(); // answer of any command but a page
+        long started = Metrics.start();
+        try {
+            char key = command.charAt(0);
+            String argument = command.length() > 2 ? command.substring(2) : "";
+            if (command.startsWith("stats")) {
+                text.append(Metrics.stats(command.substring(5).trim()));
+                Metrics.record("command stats", started); // after the report, so that it shows earlier reads only
+                write(text, out);
+                return;
+            }
+            if (key == 'u') {
+                argument = actor(argument);
+                // edge case: the provided actor is not in the graph
+                if (!graph.hasVertex(argument)) {
+                    text.append(argument).append(" is not in the graph\n").append(didYouMean(argument));
+                }
+                // edge case: provided actor is the same as the current center
+                else if (argument.equals(center)) {
+                    text.append(center).append(" is already the center of the universe");
+                }
+                else {
+                    center = argument;
+                    tree = trees.get(center);
+                    text.append(summary());
+                }
+            }
+            else if (key == 'i') {
+                String[] page = argument.isEmpty() ? new String[0] : argument.split(",");
+                page(components.outside(center), page, 0, out);
+            }
+            else if (key == 'e') {
+                String actor = argument.isEmpty() ? center : actor(argument);
+                text.append(graph.hasVertex(actor) ? analytics.report(actor) : actor + " is not in the graph\n" + didYouMean(actor));
+            }
+            else if (key == 'n') {
+                String prefix = argument;
+                int limit = 10;
+                int comma = prefix.lastIndexOf(',');
+                if (comma >= 0 && prefix.substring(comma + 1).trim().matches("\\d+")) { // names may hold commas, limits never do
+                    limit = Integer.parseInt(prefix.substring(comma + 1).trim());
+                    prefix = prefix.substring(0, comma);
+                }
+                List<String> completions = names.complete(prefix, limit);
+                if (completions.isEmpty()) {
+                    text.append("No actor's name starts with ").append(prefix).append('\n').append(didYouMean(prefix));
+                }
+                else {
+                    text.append(completions);
+                }
+            }
+            else if (key == 'c') {
+                int comma = argument.indexOf(',');
+                if (comma >= 0) { // sampled ranking for graphs too big for a BFS from every actor
+                    int num = Integer.parseInt(argument.substring(0, comma));
+                    GraphAnalytics.Closeness<String> closeness =
+                            analytics.approximateCloseness(Integer.parseInt(argument.substring(comma + 1)), SAMPLE_SEED);
+                    List<String> ranked = num > 0 ? closeness.top(num) : closeness.bottom(Math.abs(num));
+                    text.append(ranked).append('\n')
+                            .append(String.format("Their estimated average separations are within %.2f", closeness.maxErrorBound(ranked)))
+                            .append(" of the exact ones with ").append((int) (100 * GraphAnalytics.CONFIDENCE)).append("% confidence");
+                }
+                else {
+                    int num = Integer.parseInt(argument);
+                    text.append(num > 0 ? separations.top(num) : separations.bottom(Math.abs(num)));
+                }
+            }
+            else if (key == 'p') {
+                int comma = argument.indexOf(',');
+                if (comma < 0) {
+                    path(actor(argument), text);
+                }
+                else {
+                    path(actor(argument.substring(0, comma)), actor(argument.substring(comma + 1)), text);
+                }
+            }
+            else if (key == 's' || key == 'd') {
+                String[] numbers = argument.split(","); // low, high, then the optional offset and limit
+                int low = Integer.parseInt(numbers[0]);
+                int high = Integer.parseInt(numbers[1]);
+                //edge case: low is greater than high
+                if (low > high) {
+                    text.append("The first number is greater than the second\nPlease reenter the numbers");
+                }
+                //edge case: low and high are equal
+                else if (low == high) {
+                    text.append("The first number is equal to the second\nPlease reenter the numbers");
+                }
+                else {
+                    page(key == 's' ? GraphLibrary.sortedBySeparation(tree, low, high) : degrees.between(low, high),
+                            numbers, 2, out);
+                }
+            }
+            else if (key == '+' || key == '-') {
+                text.append("The shared graph is read-only");
+            }
+            else {
+                text.append("Invalid input. Please read the instruction for all valid keys");
+            }
+            Metrics.command(key, started);
+        }
+        catch (RuntimeException e) {
+            text.setLength(0);
+            text.append("Invalid input. Please read the instruction for all valid keys");
+        }
+        write(text, out);
+    }
+
+    /**
+     * Write a finished answer
+     */
+    private static void write(CharSequence text, Appendable out) {
+        try {
+            out.append(text);
+        }
+        catch (IOException e) {
+            System.out.println("I/O Error\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * Write the path from an actor to the center and the movies along it
+     */
+    private void path(String s, StringBuilder out) {
+        // boundary cases: the tree is empty, or the actor has no path to the center
+        if (tree.reachedCount() == 0) {
+            out.append("Empty tree\n");
+        }
+        else if (!tree.isReached(s)) {
+            out.append("No path to ").append(s).append("\nPlease make sure ").append(s).append(" is spelt correctly\n");
+        }
+        if (!graph.hasVertex(s)) {
+            out.append(didYouMean(s)).append('\n');
+        }
+        List<String> path = tree.getPath(s);
+        out.append(s).append(" number is ").append(path.size() - 1);
+        movies(path, out);
+    }
+
+    /**
+     * Write the path between two actors, found by a bidirectional BFS without changing the center, and the movies
+     * along it
+     */
+    private void path(String s, String t, StringBuilder out) {
+        List<String> path = components.connected(s, t) ? pathSearch.path(s, t) : new ArrayList<String>();
+        if (path.isEmpty()) {
+            String missing = graph.hasVertex(s) ? t : s;
+            out.append("No path from ").append(s).append(" to ").append(t).append('\n');
+            if (!graph.hasVertex(missing)) {
+                out.append("Please make sure ").append(missing).append(" is spelt correctly\n").append(didYouMean(missing)).append('\n');
+            }
+        }
+        out.append(s).append(" number is ").append(path.size() - 1).append(" from ").append(t);
+        movies(path, out);
+    }
+
+    /**
+     * Write the movies linking each step of a path
+     */
+    private void movies(List<String> path, StringBuilder out) {
+        for (int i = 0; i < path.size() - 1; i++) {
+            out.append('\n').append(path.get(i)).append(" appeared in ")
+                    .append(graph.getLabel(path.get(i), path.get(i + 1))).append(" with ").append(path.get(i + 1));
+        }
+    }
+
+    /**
+     * The actor an argument names: the name itself, "#" and an actor id, or a name differing only in case or accents
+     * @param argument what was typed
+     * @return the actor's name, or the argument unchanged if it names no single actor
+     */
+    public String actor(String argument) {
+        String name = names.resolve(argument);
+        return name != null ? name : argument;
+    }
+
+    /**
+     * Line suggesting the actors closest to a name that is not in the graph
+     * @param name the name as typed
+     * @return a line listing up to 5 close names
+     */
+    public String didYouMean(String name) {
+        List<String> described = new ArrayList<String>();
+        for (String close : names.suggest(name, 5)) {
+            described.add(names.describe(close));
+        }
+        return described.isEmpty() ? "No actor has a name like " + name : "Did you mean " + described + "?";
+    }
+
+    /**
+     * Write the page of a result given by optional offset and limit arguments, PAGE actors if there is no limit
+     */
+    private static void page(Iterable<String> result, String[] arguments, int at, Appendable out) {
+        int offset = arguments.length > at ? Integer.parseInt(arguments[at].trim()) : 0;
+        int limit = arguments.length > at + 1 ? Integer.parseInt(arguments[at + 1].trim()) : PAGE;
+        GraphLibrary.printPage(result, offset, limit, out);
+    }
+}
@@ -0,0 +1,421 @@
+import java.util.*;
+
+/**
+ * Eccentricity and closeness analytics for choosing centers on graphs too large for a BFS from every actor.
+ * Exact eccentricities come from the Takes and Kosters bounding technique: every BFS gives each vertex of its
+ * component a lower bound max(d, e - d) and an upper bound e + d on its eccentricity (e being the eccentricity of
+ * the BFS root and d the vertex's distance from it), and searches alternate between the vertex with the largest
+ * upper bound and the one with the smallest lower bound until every bound has met. On small-world graphs that
+ * takes a fraction of the BFS runs of one per vertex, about one in eight for the main component of inputs.
+ * Actors with the same co-stars, such as the cast of a movie none of them made another movie with, are closed
+ * twins with one eccentricity, so only one of each group of twins is bounded.
+ * Approximate closeness averages the distances from a sample of sources in each component, which estimates every
+ * vertex's average separation at once. Each estimate gets the tighter of a Hoeffding and an empirical Bernstein
+ * bound, over the range [0, min over the sources s of d(s, v) + e(s)], which holds the vertex's eccentricity.
+ * Eccentricities are within a vertex's component, so an actor with no co-stars has eccentricity 0.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class GraphAnalytics<V> {
+    public static final double CONFIDENCE = 0.95; // probability that every estimate is within its error bound
+    public static final int BERNSTEIN_SAMPLES = 30; // fewest samples for which the empirical Bernstein bound is tried
+
+    private final IndexedGraph<V> graph;          // graph the analytics are of
+    private final ComponentIndex<V> components;   // components of the same graph
+    private final ShortestPathTree<V> tree;       // reused by every BFS
+    private int[] eccentricity;                   // id --> eccentricity, null until first asked for
+    private int[] searches;                       // id --> BFS runs the bounds of its component needed
+
+    /**
+     * Analytics are computed on one reusable tree, so the public methods are synchronized and threads sharing an
+     * instance take turns
+     * @param graph the graph, which must not change while the analytics are in use
+     * @param components the component index over the same graph
+     */
+    public GraphAnalytics(IndexedGraph<V> graph, ComponentIndex<V> components) {
+        this.graph = graph;
+        this.components = components;
+        this.tree = new ShortestPathTree<V>(graph);
+    }
+
+    /**
+     * @return the graph the analytics are of
+     */
+    public IndexedGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * @param v a vertex
+     * @return largest distance from v to a vertex of its component, or -1 if v is not in the graph
+     */
+    public synchronized int eccentricity(V v) {
+        int id = graph.idOf(v);
+        return id < 0 ? -1 : eccentricities()[id];
+    }
+
+    /**
+     * @param v a vertex
+     * @return smallest eccentricity in v's component, or -1 if v is not in the graph
+     */
+    public synchronized int radius(V v) {
+        int radius = -1;
+        for (int id : component(v)) {
+            radius = radius < 0 ? eccentricities()[id] : Math.min(radius, eccentricities()[id]);
+        }
+        return radius;
+    }
+
+    /**
+     * @param v a vertex
+     * @return largest eccentricity in v's component, or -1 if v is not in the graph
+     */
+    public synchronized int diameter(V v) {
+        int diameter = -1;
+        for (int id : component(v)) {
+            diameter = Math.max(diameter, eccentricities()[id]);
+        }
+        return diameter;
+    }
+
+    /**
+     * @param v a vertex
+     * @return the vertices of v's component with the smallest eccentricity, in id order
+     */
+    public synchronized List<V> center(V v) {
+        return withEccentricity(v, radius(v));
+    }
+
+    /**
+     * @param v a vertex
+     * @return the vertices of v's component with the largest eccentricity, in id order
+     */
+    public synchronized List<V> periphery(V v) {
+        return withEccentricity(v, diameter(v));
+    }
+
+    /**
+     * Eccentricity of a vertex and the radius, diameter, center and periphery of its component
+     * @param v a vertex of the graph
+     * @return the report, several lines long
+     */
+    public synchronized String report(V v) {
+        List<V> center = center(v), periphery = periphery(v);
+        return v + " has eccentricity " + eccentricity(v) + "; its component of " + components.componentSize(v)
+                + " actors has radius " + radius(v) + " and diameter " + diameter(v) + " (" + searches(v) + " BFS runs)\n"
+                + "center (" + center.size() + "): " + center.subList(0, Math.min(20, center.size())) + "\n"
+                + "periphery (" + periphery.size() + "): " + periphery.subList(0, Math.min(20, periphery.size()));
+    }
+
+    /**
+     * @param v a vertex
+     * @return number of BFS runs the exact eccentricities of v's component took, 0 if v is not in the graph
+     */
+    public synchronized int searches(V v) {
+        int id = graph.idOf(v);
+        if (id < 0) return 0;
+        eccentricities();
+        return searches[id];
+    }
+
+    /**
+     * Estimate every vertex's average separation from a sample of BFS sources in each component.
+     * A component no larger than the sample is computed exactly instead, one BFS per member.
+     * @param samples number of sources per component, drawn with replacement
+     * @param seed random seed
+     * @return the estimates
+     */
+    public synchronized Closeness<V> approximateCloseness(int samples, long seed) {
+        if (samples < 1) throw new IllegalArgumentException("Need at least one sample");
+        int n = graph.numVertices();
+        double[] average = new double[n];
+        double[] error = new double[n];
+        double[] squares = new double[n]; // id --> sum of squared distances from the sources
+        int[] range = new int[n];         // id --> upper bound on its eccentricity from the sources so far
+        // union bound over every vertex, and over both bounds when both are tried
+        int bounds = samples >= BERNSTEIN_SAMPLES ? 2 : 1;
+        double log = Math.log(2.0 * bounds * n / (1 - CONFIDENCE));
+        int[] ids = components.groupedIds();
+        Random random = new Random(seed);
+        for (int from = 0, size; from < n; from += size) {
+            size = components.componentSize(ids[from]);
+            if (size <= samples) {
+                for (int i = from; i < from + size; i++) {
+                    tree.search(ids[i]);
+                    average[ids[i]] = tree.stats().averageSeparation();
+                }
+                continue;
+            }
+            for (int i = from; i < from + size; i++) {
+                range[ids[i]] = Integer.MAX_VALUE;
+            }
+            for (int k = 0; k < samples; k++) {
+                tree.search(ids[from + random.nextInt(size)]);
+                int e = tree.stats().eccentricity();
+                for (int i = from; i < from + size; i++) {
+                    int id = ids[i], d = tree.distance(id);
+                    average[id] += d;
+                    squares[id] += (double) d * d;
+                    range[id] = Math.min(range[id], d + e); // e(v) <= d(s, v) + e(s) for every source s
+                }
+            }
+            for (int i = from; i < from + size; i++) {
+                int id = ids[i];
+                average[id] /= samples;
+                // Hoeffding over distances in [0, range]
+                error[id] = range[id] * Math.sqrt(log / (2.0 * samples));
+                if (bounds == 2) { // empirical Bernstein (Maurer and Pontil), small when the distances vary little
+                    double variance = Math.max(0, (squares[id] - samples * average[id] * average[id]) / (samples - 1));
+                    double bernstein = Math.sqrt(2 * variance * (log + Math.log(2)) / samples)
+                            + 7 * range[id] * (log + Math.log(2)) / (3.0 * (samples - 1));
+                    error[id] = Math.min(error[id], bernstein);
+                }
+            }
+        }
+        return new Closeness<V>(graph, average, error);
+    }
+
+    /**
+     * Exact eccentricity of every vertex, bounded component by component the first time it is needed
+     */
+    private int[] eccentricities() {
+        if (eccentricity != null) return eccentricity;
+        int n = graph.numVertices();
+        eccentricity = new int[n];
+        searches = new int[n];
+        int[] lower = new int[n], upper = new int[n], degree = new int[n];
+        for (int id = 0; id < n; id++) {
+            degree[id] = graph.outDegree(graph.vertexAt(id));
+        }
+        int[] ids = components.groupedIds();
+        for (int from = 0, size; from < n; from += size) {
+            size = components.componentSize(ids[from]);
+            if (size == 1) continue;
+            int[] twin = twins(ids, from, from + size);
+            int[] open = new int[size];
+            int representatives = 0;
+            for (int i = from; i < from + size; i++) {
+                if (twin[i - from] == ids[i]) open[representatives++] = ids[i];
+            }
+            int runs = bound(Arrays.copyOf(open, representatives), lower, upper, degree);
+            for (int i = from; i < from + size; i++) {
+                eccentricity[ids[i]] = eccentricity[twin[i - from]];
+                searches[ids[i]] = runs;
+            }
+        }
+        return eccentricity;
+    }
+
+    /**
+     * Group the vertices of a component by closed neighborhood (co-stars and the actor itself): twins are the same
+     * distance from every other vertex and one step from each other, so they share an eccentricity.
+     * Neighborhoods are hashed, and vertices with the same hash are compared in full. In a bipartite graph actors
+     * are grouped by movie list instead, which needs no co-star lists: two actors with the same movies are twins.
+     * @return for each of ids[from .. to), the first vertex with its closed neighborhood
+     */
+    private int[] twins(int[] ids, int from, int to) {
+        int[] twin = new int[to - from];
+        Map<Long, List<Integer>> byHash = new HashMap<Long, List<Integer>>(); // hash --> first vertex of each group
+        for (int i = from; i < to; i++) {
+            int[] key = twinKey(ids[i]);
+            long hash = key.length;
+            for (int id : key) {
+                hash = hash * 0x9E3779B97F4A7C15L + id;
+            }
+            List<Integer> groups = byHash.computeIfAbsent(hash, h -> new ArrayList<Integer>(1));
+            twin[i - from] = ids[i];
+            for (int first : groups) {
+                if (Arrays.equals(key, twinKey(first))) {
+                    twin[i - from] = first;
+                    break;
+                }
+            }
+            if (twin[i - from] == ids[i]) groups.add(ids[i]);
+        }
+        return twin;
+    }
+
+    /**
+     * What twins have in common: the movies of an actor in a bipartite graph, its closed neighborhood otherwise
+     */
+    private int[] twinKey(int id) {
+        if (graph instanceof BipartiteGraph) {
+            BipartiteGraph<V> bipartite = (BipartiteGraph<V>) graph;
+            return Arrays.copyOfRange(bipartite.filmMovies(), bipartite.filmOffsets()[id], bipartite.filmOffsets()[id + 1]);
+        }
+        return closedNeighborhood(id);
+    }
+
+    /**
+     * Ids of a vertex and its out neighbors, ascending
+     */
+    private int[] closedNeighborhood(int id) {
+        int[] closed = new int[graph.outDegree(graph.vertexAt(id)) + 1];
+        int k = 0;
+        closed[k++] = id;
+        for (V neighbor : graph.outNeighbors(graph.vertexAt(id))) {
+            closed[k++] = graph.idOf(neighbor);
+        }
+        Arrays.sort(closed);
+        return closed;
+    }
+
+    /**
+     * Tighten the bounds of one component's vertices until each has met, settling its eccentricity
+     * @param open ids of the component whose eccentricity is not known yet; used as scratch
+     * @return number of BFS runs it took
+     */
+    private int bound(int[] open, int[] lower, int[] upper, int[] degree) {
+        int runs = 0;
+        for (int id : open) {
+            lower[id] = 0;
+            upper[id] = Integer.MAX_VALUE;
+        }
+        int left = open.length;
+        boolean largestUpper = true;
+        while (left > 0) {
+            // alternate between the vertex that may lie on the periphery and the one that may be a center,
+            // on ties the less connected actor for the periphery and the busier one for the center
+            int pick = 0;
+            for (int i = 1; i < left; i++) {
+                int a = open[i], b = open[pick];
+                int order = largestUpper ? Integer.compare(upper[a], upper[b]) : Integer.compare(lower[b], lower[a]);
+                if (order > 0 || (order == 0 && (largestUpper ? degree[a] < degree[b] : degree[a] > degree[b]))) pick = i;
+            }
+            largestUpper = !largestUpper;
+            tree.search(open[pick]);
+            runs++;
+            int e = tree.stats().eccentricity();
+            for (int i = 0; i < left; ) {
+                int w = open[i], d = tree.distance(w);
+                lower[w] = Math.max(lower[w], Math.max(d, e - d));
+                upper[w] = Math.min(upper[w], e + d);
+                if (lower[w] == upper[w]) {
+                    eccentricity[w] = lower[w];
+                    open[i] = open[--left];
+                }
+                else {
+                    i++;
+                }
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Ids of v's component, empty if v is not in the graph
+     */
+    private int[] component(V v) {
+        int id = graph.idOf(v);
+        if (id < 0) return new int[0];
+        List<V> members = components.members(v);
+        int[] ids = new int[members.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = graph.idOf(members.get(i));
+        }
+        return ids;
+    }
+
+    private List<V> withEccentricity(V v, int e) {
+        List<V> vertices = new ArrayList<V>();
+        for (int id : component(v)) {
+            if (eccentricities()[id] == e) vertices.add(graph.vertexAt(id));
+        }
+        return vertices;
+    }
+
+    /**
+     * Estimated average separations, each within its error bound of the exact value; with probability CONFIDENCE
+     * all of them are at once
+     */
+    public static class Closeness<V> {
+        private final IndexedGraph<V> graph;
+        private final double[] average; // id --> estimated average separation
+        private final double[] error;   // id --> error bound, 0 where the average is exact
+
+        Closeness(IndexedGraph<V> graph, double[] average, double[] error) {
+            this.graph = graph;
+            this.average = average;
+            this.error = error;
+        }
+
+        /**
+         * @param v a vertex
+         * @return estimated average separation of v as the center, or -1 if v is not in the graph
+         */
+        public double averageSeparation(V v) {
+            int id = graph.idOf(v);
+            return id < 0 ? -1 : average[id];
+        }
+
+        /**
+         * @param v a vertex
+         * @return error bound of v's estimate, 0 if it is exact
+         */
+        public double errorBound(V v) {
+            int id = graph.idOf(v);
+            return id < 0 ? 0 : error[id];
+        }
+
+        /**
+         * @return largest error bound of any estimate
+         */
+        public double maxErrorBound() {
+            double max = 0;
+            for (double e : error) max = Math.max(max, e);
+            return max;
+        }
+
+        /**
+         * @param vertices some vertices
+         * @return largest error bound of their estimates
+         */
+        public double maxErrorBound(Collection<V> vertices) {
+            double max = 0;
+            for (V v : vertices) max = Math.max(max, errorBound(v));
+            return max;
+        }
+
+        /**
+         * The num vertices with the lowest estimated average separation, best first
+         * @param num number of vertices
+         * @return list of vertices
+         */
+        public List<V> top(int num) {
+            return select(num, Comparator.comparingDouble(id -> average[id]));
+        }
+
+        /**
+         * The num vertices with the highest estimated average separation, worst first
+         * @param num number of vertices
+         * @return list of vertices
+         */
+        public List<V> bottom(int num) {
+            Comparator<Integer> ascending = Comparator.comparingDouble(id -> average[id]);
+            return select(num, ascending.reversed());
+        }
+
+        /**
+         * Keep the first num ids in order with a bounded heap instead of sorting every id
+         */
+        private List<V> select(int num, Comparator<Integer> order) {
+            PriorityQueue<Integer> heap = new PriorityQueue<Integer>(order.reversed());
+            for (int id = 0; id < average.length && num > 0; id++) {
+                if (heap.size() < num) {
+                    heap.add(id);
+                }
+                else if (order.compare(id, heap.peek()) < 0) {
+                    heap.remove();
+                    heap.add(id);
+                }
+            }
+            List<Integer> ids = new ArrayList<Integer>(heap);
+            ids.sort(order);
+            List<V> vertices = new ArrayList<V>(ids.size());
+            for (int id : ids) {
+                vertices.add(graph.vertexAt(id));
+            }
+            return vertices;
+        }
+    }
+}
@@ -2,13 +2,13 @@ import java.io.IOException;
 import java.util.*;
 
 /**
- * Graph library with generic type vertex and edge
+ * Graph library with generic type vertex and edge.
+ * Every method keeps its state in locals and in the trees it is handed, so the library is reentrant and
+ * thread-safe as long as each thread works on its own ShortestPathTree.
  * @author Aimen Abdulaziz
  * @author Angelic McPherson
  */
 public class GraphLibrary<V,E> {
-    static double totalSeparation; // total separation
-
     public GraphLibrary() {
     }
 
@@ -33,9 +33,11 @@ public class GraphLibrary<V,E> {
         Queue<V> queue = new LinkedList<V>(); //queue to implement BFS
 
         queue.add(start); //enqueue start vertex
+        long edges = 0; // edges looked at, for the metrics
         while (!queue.isEmpty()) { //loop until no more vertices
             V u = queue.remove(); //dequeue
             for (V v : G.outNeighbors(u)) { //loop over out neighbors
+                edges++;
                 if (!backTrack.hasVertex(v)) { //if neighbor not visited, then neighbor is discovered from this vertex
                     queue.add(v); //enqueue neighbor
                     backTrack.insertVertex(v); // add costar
@@ -43,9 +45,33 @@ public class GraphLibrary<V,E> {
                 }
             }
         }
+        Metrics.searched(backTrack.numVertices(), edges);
         return backTrack;
     }
 
+    /**
+     * BFS into reusable primitive buffers instead of building a tree graph.
+     * @param G the given indexed graph, co-star or actor-movie
+     * @param start start vertex
+     * @param tree tree to re-root, or null to allocate one for G
+     * @param <V> generic type vertex
+     * @return the tree rooted at start, empty if start is not in the graph
+     */
+    public static <V> ShortestPathTree<V> BFS(IndexedGraph<V> G, V start, ShortestPathTree<V> tree) {
+        if (tree == null || tree.graph() != G) {
+            tree = new ShortestPathTree<V>(G);
+        }
+        // edge case when the vertex is not in the graph
+        if (!G.hasVertex(start)){
+            System.out.println("No path to " + start);
+            System.out.println("Please make sure " + start + " is spelt correctly");
+            tree.clear();
+            return tree;
+        }
+        tree.search(G.idOf(start));
+        return tree;
+    }
+
     /**
      * Given a shortest path tree and a vertex, construct a path from the vertex back to the center of the universe.
      * @param tree the given graph
@@ -79,6 +105,29 @@ public class GraphLibrary<V,E> {
         return path;
     }
 
+    /**
+     * Given a shortest path tree view and a vertex, construct a path from the vertex back to the center of the universe.
+     * @param tree the shortest path tree
+     * @param v any given vertex
+     * @param <V> generic type vertex
+     * @return a list with the shortest path
+     */
+    public static <V> List<V> getPath(ShortestPathTree<V> tree, V v) {
+        // boundary case when the tree is empty
+        if (tree.reachedCount() == 0){
+            System.out.println("Empty tree");
+            return new ArrayList<V>();
+        }
+
+        // boundary case when the provided vertex has no path to the root
+        if (!tree.isReached(v)){
+            System.out.println("No path to " + v);
+            System.out.println("Please make sure " + v + " is spelt correctly");
+            return new ArrayList<V>();
+        }
+        return tree.getPath(v);
+    }
+
     /**
      * Determine which vertices are in the graph but not the subgraph
      * @param graph the main graph
@@ -97,8 +146,28 @@ public class GraphLibrary<V,E> {
         return missingVertices;
     }
 
+    /**
+     * Determine which vertices are in the graph but have no path in the shortest path tree
+     * @param graph the main graph
+     * @param tree the shortest path tree
+     * @param <V> generic type vertex
+     * @param <E> generic type edge
+     * @return a set of vertices not reached by the tree
+     */
+    public static <V,E> Set<V> missingVertices(Graph<V,E> graph, ShortestPathTree<V> tree){
+        Set<V> missingVertices = new HashSet<V>();
+        for (V vertex: graph.vertices()) {
+            if (!tree.isReached(vertex)){
+                missingVertices.add(vertex);
+            }
+        }
+        return missingVertices;
+    }
+
     /**
      * Find the average distance-from-root in a shortest path tree.
+     * The tree is walked level by level from the root down through in-neighbors, with an explicit queue,
+     * so a long chain cannot overflow the stack.
      * @param tree the given graph
      * @param root the root of the graph
      * @param <V> generic type vertex
@@ -114,29 +183,92 @@ public class GraphLibrary<V,E> {
             System.out.println(root + " is not in the shortest path tree");
             return -1;
         }
-        totalSeparation = 0; // initialize total separation
-        double edge = tree.numVertices();
-        averageSeparationHelper(tree, root, 0);
-        return totalSeparation / edge;
+        double totalSeparation = 0;
+        Queue<V> level = new ArrayDeque<V>(); // vertices at the current distance from the root
+        level.add(root);
+        for (int distance = 0; !level.isEmpty(); distance++) {
+            Queue<V> next = new ArrayDeque<V>();
+            for (V vertex : level) {
+                totalSeparation += distance;
+                for (V child : tree.inNeighbors(vertex)) {
+                    next.add(child);
+                }
+            }
+            level = next;
+        }
+        return totalSeparation / tree.numVertices();
     }
 
     /**
-     * Helper method for average separation
-     * @param tree the graph
-     * @param root the root of the graph
-     * @param sum this counts the sum of the edges
+     * Find the average distance-from-root in a shortest path tree view, from the statistics its BFS gathered.
+     * @param tree the shortest path tree
+     * @param root the root of the tree
      * @param <V> generic type vertex
-     * @param <E> generic type edge
+     * @return a double that describes the avg separation
      */
-    public static <V,E> void averageSeparationHelper(Graph<V,E> tree, V root, double sum){
-        totalSeparation += sum;
-        if (tree.inDegree(root) == 0) {
-            return;
+    public static <V> double averageSeparation(ShortestPathTree<V> tree, V root) {
+        if (tree.reachedCount() == 0){
+            return -1;
         }
+        // boundary case when the tree is rooted somewhere else
+        if (!Objects.equals(tree.root(), root)){
+            System.out.println(root + " is not the root of the shortest path tree");
+            return -1;
+        }
+        return tree.stats().averageSeparation();
+    }
+
+    /**
+     * List the vertices reached by a shortest path tree, sorted by their distance from the root.
+     * The tree keeps its vertices grouped by distance, so this is a slice of those groups rather than a sort.
+     * @param tree the shortest path tree
+     * @param lowNum lower boundary
+     * @param highNum upper boundary
+     * @param <V> generic type vertex
+     * @return the vertices with distance between the bounds, closest first
+     */
+    public static <V> List<V> sortedBySeparation(ShortestPathTree<V> tree, int lowNum, int highNum) {
+        return tree.verticesBetween(lowNum, highNum);
+    }
 
-        for (V child : tree.inNeighbors(root)) {
-            averageSeparationHelper(tree, child, sum+1); //increment the sum; recurse with child
+    /**
+     * Write one page of a result in list form, [a, b, c], an element at a time, so that memory and the wait for the
+     * first line depend on the page and not on the size of the result.
+     * A list is paged with subList; any other result is read past the offset.
+     * @param result the result, read lazily
+     * @param offset number of leading elements to skip
+     * @param limit largest number of elements to write, negative for all of them
+     * @param out where to write
+     * @param <V> generic type vertex
+     * @return number of elements written
+     */
+    public static <V> int printPage(Iterable<V> result, int offset, int limit, Appendable out) {
+        Iterator<V> elements;
+        if (result instanceof List) {
+            List<V> list = (List<V>) result;
+            int from = Math.min(Math.max(offset, 0), list.size());
+            int to = limit < 0 ? list.size() : (int) Math.min(list.size(), (long) from + limit);
+            elements = list.subList(from, to).iterator();
+        }
+        else {
+            elements = result.iterator();
+            for (int i = 0; i < offset && elements.hasNext(); i++) {
+                elements.next();
+            }
+        }
+        int written = 0;
+        try {
+            out.append('[');
+            while (elements.hasNext() && (limit < 0 || written < limit)) {
+                if (written++ > 0) out.append(", ");
+                out.append(String.valueOf(elements.next()));
+            }
+            out.append(']');
+        }
+        catch (IOException e) {
+            System.out.println("I/O Error\n" + e.getMessage());
         }
+        return written;
     }
 
     /**
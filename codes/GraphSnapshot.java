@@ -0,0 +1,365 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a built bacon graph, so that a restart can skip parsing the text files and building the graph.
+ * The file is a fixed header followed by the CSRGraph arrays, the movie casts, the file ids of the actors and movies
+ * and the name and title dictionaries; it is read back through a memory map with bulk int copies, so loading is
+ * little more than a memcpy. The file is mapped a window of at most WINDOW bytes at a time, so a snapshot may be
+ * larger than the 2 GiB one MappedByteBuffer can span.
+ * The header carries a format version, the array lengths, a fingerprint of the source files it was built from and a
+ * CRC32 of the header and payload, so a snapshot that is stale, from another version or damaged is refused instead
+ * of loaded.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class GraphSnapshot {
+    private static final int MAGIC = 0x4241434E; // "BACN"
+    private static final int VERSION = 3;        // 2: movie casts follow the label pool; 3: file ids follow the casts
+    private static final int CHECKSUM = 48;      // offset of the CRC32, which covers every other byte
+    private static final int HEADER = 56;        // bytes before the payload
+    private static final int SYMMETRIC = 1;      // flag: in adjacency is the out adjacency and is not stored
+    private static final long WINDOW = 1 << 30;  // largest part of the file mapped at once
+
+    private final CSRGraph<String> graph;        // the restored graph
+    private final Map<String, String> actors;    // actor id --> actor name
+    private final Map<String, String> movies;    // movie id --> movie name
+
+    private GraphSnapshot(CSRGraph<String> graph, Map<String, String> actors, Map<String, String> movies) {
+        this.graph = graph;
+        this.actors = actors;
+        this.movies = movies;
+    }
+
+    /**
+     * @return the restored graph
+     */
+    public CSRGraph<String> graph() {
+        return graph;
+    }
+
+    /**
+     * @return actor id --> actor name, as in BaconGame.actorsMap; read-only
+     */
+    public Map<String, String> actorsMap() {
+        return actors;
+    }
+
+    /**
+     * @return movie id --> movie name, as in BaconGame.moviesMap; read-only
+     */
+    public Map<String, String> moviesMap() {
+        return movies;
+    }
+
+    /**
+     * Fingerprint of the source files: their paths, sizes and modification times
+     * @param paths locations of the source files
+     * @return a fingerprint that changes whenever one of the files does
+     */
+    public static long fingerprint(String... paths) {
+        CRC32 crc = new CRC32();
+        for (String path : paths) {
+            File file = new File(path);
+            crc.update(file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+            crc.update(ByteBuffer.allocate(16).putLong(file.length()).putLong(file.lastModified()).array());
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Write a snapshot; it is written next to the target and moved into place, so readers never see half a file,
+     * and the partial file is removed if writing fails
+     * @param graph the built graph
+     * @param actors actor id --> actor name of the actors in the graph; ids must be numbers
+     * @param movies movie id --> movie name of the movies in the graph; ids must be numbers
+     * @param path location of the snapshot
+     * @param fingerprint fingerprint of the source files the graph was built from
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void save(CSRGraph<String> graph, Map<String, String> actors, Map<String, String> movies,
+                            String path, long fingerprint) throws IOException {
+        int n = graph.numVertices(), edges = graph.numEdges();
+        boolean symmetric = graph.isSymmetric();
+        int[] pool = graph.moviePool();
+        String[] titles = graph.movieTitles();
+        byte[][] names = encode(graph.vertexArray());
+        byte[][] movieNames = encode(titles);
+        Map<String, Integer> titleIds = new HashMap<String, Integer>();
+        for (int m = 0; m < titles.length; m++) {
+            titleIds.put(titles[m], m);
+        }
+        BulkLoader.IdMap actorIds = idMap(actors, name -> graph.idOf(name), graph.vertexArray());
+        BulkLoader.IdMap movieIds = idMap(movies, title -> titleIds.getOrDefault(title, -1), titles);
+
+        int[] castOffsets = graph.castOffsets(), castActors = graph.castActors();
+        long size = payloadInts(n, edges, pool.length, titles.length, castActors.length, actorIds.size(), movieIds.size(), symmetric);
+        size = HEADER + 4 * size + dictionarySize(names) + dictionarySize(movieNames);
+
+        Path target = Paths.get(path).toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Cursor payload = new Cursor(channel, FileChannel.MapMode.READ_WRITE, size);
+                payload.putInts(graph.outOffsets());
+                payload.putInts(graph.outTargets());
+                if (!symmetric) {
+                    payload.putInts(graph.inOffsets());
+                    payload.putInts(graph.inSources());
+                }
+                payload.putInts(graph.labelStarts());
+                payload.putInts(graph.labelLengths());
+                payload.putInts(pool);
+                payload.putInts(castOffsets);
+                payload.putInts(castActors);
+                payload.putInts(actorIds.fileIds());
+                payload.putInts(actorIds.denseIds());
+                payload.putInts(movieIds.fileIds());
+                payload.putInts(movieIds.denseIds());
+                payload.putDictionary(names);
+                payload.putDictionary(movieNames);
+                payload.force();
+
+                MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, symmetric ? SYMMETRIC : 0)
+                        .putInt(12, n).putInt(16, edges).putInt(20, pool.length).putInt(24, titles.length).putInt(28, castActors.length)
+                        .putInt(32, actorIds.size()).putInt(36, movieIds.size()).putLong(40, fingerprint);
+                header.putLong(CHECKSUM, checksum(channel, header, size));
+                header.force();
+            } // closed before the move, which some platforms refuse on an open file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temp); // only still there if writing or moving failed
+        }
+    }
+
+    /**
+     * Read a snapshot back
+     * @param path location of the snapshot
+     * @param fingerprint fingerprint of the current source files
+     * @return the graph and ids, or null if there is no snapshot or it is stale, from another version or damaged
+     * @throws IOException if the snapshot exists but cannot be read
+     */
+    public static GraphSnapshot load(String path, long fingerprint) throws IOException {
+        Path source = Paths.get(path);
+        if (!Files.isRegularFile(source) || Files.size(source) < HEADER) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                System.out.println("Snapshot " + path + " is from another version and will be rebuilt");
+                return null;
+            }
+            if (buffer.getLong(40) != fingerprint) {
+                System.out.println("Snapshot " + path + " is older than the input files and will be rebuilt");
+                return null;
+            }
+            boolean symmetric = (buffer.getInt(8) & SYMMETRIC) != 0;
+            int n = buffer.getInt(12), edges = buffer.getInt(16), pool = buffer.getInt(20), movies = buffer.getInt(24);
+            int credits = buffer.getInt(28), actorCount = buffer.getInt(32), movieCount = buffer.getInt(36);
+            // the counts must fit the file before anything is allocated from them; each name takes at least 4 bytes
+            boolean fits = n >= 0 && edges >= 0 && pool >= 0 && movies >= 0 && credits >= 0 && actorCount >= 0 && movieCount >= 0
+                    && HEADER + 4 * (payloadInts(n, edges, pool, movies, credits, actorCount, movieCount, symmetric) + n + movies) <= size;
+            if (!fits || buffer.getLong(CHECKSUM) != checksum(channel, buffer, size)) {
+                System.out.println("Snapshot " + path + " is damaged and will be rebuilt");
+                return null;
+            }
+            try {
+                return read(new Cursor(channel, FileChannel.MapMode.READ_ONLY, size), symmetric, n, edges, pool, movies,
+                        credits, actorCount, movieCount);
+            }
+            catch (RuntimeException e) { // a dictionary length that runs past the end
+                System.out.println("Snapshot " + path + " is damaged and will be rebuilt");
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Read the payload of a snapshot whose header has been checked
+     */
+    private static GraphSnapshot read(Cursor payload, boolean symmetric, int n, int edges, int pool, int movies,
+                                      int credits, int actorCount, int movieCount) throws IOException {
+        int[] outOffsets = payload.getInts(n + 1);
+        int[] outTargets = payload.getInts(edges);
+        int[] inOffsets = symmetric ? outOffsets : payload.getInts(n + 1);
+        int[] inSources = symmetric ? outTargets : payload.getInts(edges);
+        int[] labelStart = payload.getInts(edges);
+        int[] labelLength = payload.getInts(edges);
+        int[] moviePool = payload.getInts(pool);
+        int[] castOffsets = payload.getInts(movies + 1);
+        int[] castActors = payload.getInts(credits);
+        int[] actorFileIds = payload.getInts(actorCount), actorDense = payload.getInts(actorCount);
+        int[] movieFileIds = payload.getInts(movieCount), movieDense = payload.getInts(movieCount);
+        String[] names = payload.getDictionary(n);
+        String[] titles = payload.getDictionary(movies);
+        CSRGraph<String> graph = CSRGraph.fromArrays(names, outOffsets, outTargets, inOffsets, inSources,
+                labelStart, labelLength, moviePool, titles, castOffsets, castActors);
+        return new GraphSnapshot(graph, new BulkLoader.IdMap(actorFileIds, actorDense, names),
+                new BulkLoader.IdMap(movieFileIds, movieDense, titles));
+    }
+
+    /**
+     * Number of ints in the payload, before the dictionaries
+     */
+    private static long payloadInts(long n, long edges, long pool, long movies, long credits, long actorIds, long movieIds,
+                                    boolean symmetric) {
+        long ints = (n + 1) + edges + 2 * edges + pool + (movies + 1) + credits + 2 * actorIds + 2 * movieIds;
+        return symmetric ? ints : ints + (n + 1) + edges;
+    }
+
+    /**
+     * File ids of a map as sorted int arrays, dropping ids whose name is not in the snapshot
+     * @param ids id --> name
+     * @param dense name --> dense id, negative if absent
+     * @param names dense id --> name
+     */
+    private static BulkLoader.IdMap idMap(Map<String, String> ids, ToIntFunction<String> dense, String[] names)
+            throws IOException {
+        int[] fileIds = new int[ids.size()], denseIds = new int[ids.size()];
+        int k = 0;
+        for (Map.Entry<String, String> id : ids.entrySet()) {
+            int denseId = dense.applyAsInt(id.getValue());
+            if (denseId < 0) continue;
+            try {
+                fileIds[k] = Integer.parseInt(id.getKey());
+            }
+            catch (NumberFormatException e) {
+                throw new IOException("Id " + id.getKey() + " is not a number and cannot be saved in a snapshot");
+            }
+            denseIds[k++] = denseId;
+        }
+        return new BulkLoader.IdMap(Arrays.copyOf(fileIds, k), Arrays.copyOf(denseIds, k), names);
+    }
+
+    private static byte[][] encode(Object[] strings) {
+        byte[][] bytes = new byte[strings.length][];
+        for (int i = 0; i < strings.length; i++) {
+            bytes[i] = strings[i].toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return bytes;
+    }
+
+    private static long dictionarySize(byte[][] strings) {
+        long size = 0;
+        for (byte[] s : strings) size += 4 + s.length;
+        return size;
+    }
+
+    /**
+     * CRC32 of the header up to the checksum and of everything after the header, read a window at a time
+     * @param header the mapped header
+     */
+    private static long checksum(FileChannel channel, MappedByteBuffer header, long size) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(header.slice(0, CHECKSUM));
+        for (long from = HEADER; from < size; from += WINDOW) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW, size - from)));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Sequential reads or writes of the payload through a window of the file that is mapped again, at the next
+     * byte, whenever the next value does not fit; int arrays are split at the window's end
+     */
+    private static class Cursor {
+        private final FileChannel channel;       // the snapshot
+        private final FileChannel.MapMode mode;  // READ_ONLY to load, READ_WRITE to save
+        private final long size;                 // length of the file
+        private MappedByteBuffer window;         // the mapped part of the file
+        private long windowStart;                // file offset of window's first byte
+
+        Cursor(FileChannel channel, FileChannel.MapMode mode, long size) {
+            this.channel = channel;
+            this.mode = mode;
+            this.size = size;
+            this.windowStart = HEADER;
+        }
+
+        /**
+         * Make sure the window holds at least the next bytes, mapping the window that starts at the next byte if not
+         * @throws BufferUnderflowException if the file ends first
+         */
+        private void ensure(long bytes) throws IOException {
+            if (window != null && window.remaining() >= bytes) return;
+            long next = window == null ? windowStart : windowStart + window.position();
+            if (bytes > Math.min(WINDOW, size - next)) {
+                throw new BufferUnderflowException();
+            }
+            if (window != null && mode == FileChannel.MapMode.READ_WRITE) {
+                window.force();
+            }
+            windowStart = next;
+            window = channel.map(mode, windowStart, Math.min(WINDOW, size - windowStart));
+            window.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void putInts(int[] values) throws IOException {
+            for (int from = 0; from < values.length; ) {
+                ensure(4);
+                int count = Math.min(values.length - from, window.remaining() / 4);
+                window.asIntBuffer().put(values, from, count);
+                window.position(window.position() + 4 * count);
+                from += count;
+            }
+        }
+
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            for (int from = 0; from < count; ) {
+                ensure(4);
+                int part = Math.min(count - from, window.remaining() / 4);
+                window.asIntBuffer().get(values, from, part);
+                window.position(window.position() + 4 * part);
+                from += part;
+            }
+            return values;
+        }
+
+        void putDictionary(byte[][] strings) throws IOException {
+            for (byte[] s : strings) {
+                ensure(4 + s.length);
+                window.putInt(s.length);
+                window.put(s);
+            }
+        }
+
+        String[] getDictionary(int count) throws IOException {
+            String[] strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                ensure(4);
+                int length = window.getInt();
+                ensure(length);
+                byte[] s = new byte[length];
+                window.get(s);
+                strings[i] = new String(s, StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+
+        /**
+         * Write the last window's changes to the file
+         */
+        void force() {
+            if (window != null) window.force();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+import java.util.Set;
+
+/**
+ * A bacon graph whose actors are numbered with dense int ids, so shortest path trees can be kept in int arrays.
+ * Implemented by the co-star CSRGraph and by the actor-movie BipartiteGraph.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public interface IndexedGraph<V> extends Graph<V, Set<String>> {
+    /**
+     * Dense id of a vertex
+     * @param v the vertex
+     * @return its id in 0..numVertices()-1, or -1 if it is not in the graph
+     */
+    public int idOf(V v);
+
+    /**
+     * Vertex with a dense id
+     * @param id the id
+     * @return the vertex
+     */
+    public V vertexAt(int id);
+}
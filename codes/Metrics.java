@@ -0,0 +1,297 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Where the time goes: latency histograms of game commands and load and build phases, counts of the vertices and
+ * edges each BFS visits, and gauges for graph size and memory.
+ * Metrics are off unless the bacon.metrics system property is true or the "stats on" command turns them on;
+ * while off, start() returns OFF without reading the clock and every record call returns on that, so instrumented
+ * code pays one volatile read. OFF is Long.MIN_VALUE rather than 0, since System.nanoTime may return any long.
+ * The same numbers are printed by the "stats" command and exported over JMX as bacon:type=Metrics, for jconsole
+ * or any other JMX client.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public final class Metrics {
+    public static final long OFF = Long.MIN_VALUE; // what start() returns while metrics are off
+    private static volatile boolean enabled = Boolean.getBoolean("bacon.metrics");
+    private static final Map<String, Histogram> latencies = new ConcurrentHashMap<String, Histogram>(); // operation --> latencies
+    private static final Map<String, LongSupplier> gauges = new ConcurrentHashMap<String, LongSupplier>(); // name --> current value
+    private static final LongAdder searches = new LongAdder();        // BFS runs
+    private static final LongAdder verticesVisited = new LongAdder(); // vertices reached by those runs
+    private static final LongAdder edgesScanned = new LongAdder();    // edges looked at by those runs
+
+    private Metrics() {
+    }
+
+    /**
+     * @return true if metrics are being recorded
+     */
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Turn recording on or off; what was recorded so far is kept
+     * @param on true to record
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * @return start time to hand to record, or OFF if metrics are off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : OFF;
+    }
+
+    /**
+     * Record how long an operation took
+     * @param operation name of the operation, such as "command p" or "phase buildGraph"
+     * @param start value start() returned when the operation began
+     */
+    public static void record(String operation, long start) {
+        if (start == OFF || !enabled) return;
+        latencies.computeIfAbsent(operation, name -> new Histogram()).add(System.nanoTime() - start);
+    }
+
+    /**
+     * Record how long a game command took
+     * @param key the command's key, such as 'p'
+     * @param start value start() returned when the command began
+     */
+    public static void command(char key, long start) {
+        if (start != OFF) record("command " + key, start);
+    }
+
+    /**
+     * Run the stats command
+     * @param argument "on" or "off" to turn recording on or off, "reset" to clear it, empty to only report
+     * @return the report, or why the argument was not understood
+     */
+    public static String stats(String argument) {
+        if (argument.equals("on") || argument.equals("off")) {
+            setEnabled(argument.equals("on"));
+        }
+        else if (argument.equals("reset")) {
+            reset();
+        }
+        else if (!argument.isEmpty()) {
+            return "Invalid input. Please read the instruction for all valid keys";
+        }
+        return report();
+    }
+
+    /**
+     * Record one BFS run
+     * @param vertices vertices it reached
+     * @param edges edges it looked at
+     */
+    public static void searched(long vertices, long edges) {
+        searched(1, vertices, edges);
+    }
+
+    /**
+     * Record BFS runs done together, such as the sources of a multi-source BFS or both ends of a bidirectional one
+     * @param runs number of runs
+     * @param vertices vertices they reached, all runs together
+     * @param edges edges they looked at, all runs together
+     */
+    public static void searched(long runs, long vertices, long edges) {
+        if (!enabled) return;
+        searches.add(runs);
+        verticesVisited.add(vertices);
+        edgesScanned.add(edges);
+    }
+
+    /**
+     * Register a value read each time the metrics are reported, replacing any gauge of the same name
+     * @param name name of the gauge
+     * @param value reads the current value
+     */
+    public static void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Register the size and memory gauges of a graph and its tree cache, read through suppliers so that a graph
+     * or cache replaced later is the one reported, and the heap in use. A bipartite graph reports its credits as its
+     * edges, since counting its co-star edges costs the square of every cast.
+     * @param graph supplies the graph
+     * @param trees supplies the tree cache, or null while there is none
+     */
+    public static void watch(Supplier<Graph<?, ?>> graph, Supplier<TreeCache<?>> trees) {
+        gauge("graph vertices", () -> graph.get().numVertices());
+        gauge("graph edges", () -> graph.get() instanceof BipartiteGraph ? ((BipartiteGraph<?>) graph.get()).numCredits() : graph.get().numEdges());
+        gauge("graph array bytes", () -> graph.get() instanceof CSRGraph ? ((CSRGraph<?>) graph.get()).memoryBytes() : -1);
+        gauge("tree cache trees", () -> trees.get() == null ? 0 : trees.get().size());
+        gauge("tree cache bytes", () -> trees.get() == null ? 0 : trees.get().memoryBytes());
+        gauge("tree cache hits", () -> trees.get() == null ? 0 : trees.get().hits());
+        gauge("tree cache misses", () -> trees.get() == null ? 0 : trees.get().misses());
+        gauge("heap used bytes", () -> Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory());
+    }
+
+    /**
+     * Forget every latency and count recorded so far; gauges stay
+     */
+    public static void reset() {
+        latencies.clear();
+        searches.reset();
+        verticesVisited.reset();
+        edgesScanned.reset();
+    }
+
+    /**
+     * Export the metrics over JMX as bacon:type=Metrics; calling it again does nothing
+     */
+    public static void register() {
+        try {
+            ObjectName name = new ObjectName("bacon:type=Metrics");
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), name);
+            }
+        }
+        catch (JMException e) {
+            System.err.println("Cannot export metrics over JMX.\n" + e.getMessage());
+        }
+    }
+
+    /**
+     * @return gauge name --> current value, sorted by name
+     */
+    static Map<String, Long> gaugeValues() {
+        Map<String, Long> values = new TreeMap<String, Long>();
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+        return values;
+    }
+
+    /**
+     * @return operation --> summary of its latencies, sorted by operation
+     */
+    static Map<String, String> latencySummaries() {
+        Map<String, String> summaries = new TreeMap<String, String>();
+        for (Map.Entry<String, Histogram> latency : latencies.entrySet()) {
+            summaries.put(latency.getKey(), latency.getValue().toString());
+        }
+        return summaries;
+    }
+
+    /**
+     * @return every metric, one per line
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder("Metrics are " + (enabled ? "on" : "off") + "\n");
+        for (Map.Entry<String, String> latency : latencySummaries().entrySet()) {
+            report.append(String.format("%-24s %s%n", latency.getKey(), latency.getValue()));
+        }
+        report.append(String.format("%-24s %d runs, %d vertices visited, %d edges scanned%n", "BFS",
+                searches.sum(), verticesVisited.sum(), edgesScanned.sum()));
+        for (Map.Entry<String, Long> gauge : gaugeValues().entrySet()) {
+            report.append(String.format("%-24s %d%n", gauge.getKey(), gauge.getValue()));
+        }
+        return report.toString().trim();
+    }
+
+    /**
+     * Latencies in power-of-two nanosecond buckets, so recording is a couple of atomic adds and percentiles are
+     * accurate to within a factor of two
+     */
+    static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64); // bucket b counts latencies in [2^b, 2^(b+1)) ns
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();                 // ns
+
+        void add(long nanos) {
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(Math.max(nanos, 1)));
+            count.increment();
+            total.add(nanos);
+        }
+
+        /**
+         * @param fraction between 0 and 1
+         * @return upper bound in ns of the bucket holding that fraction of the latencies
+         */
+        long percentile(double fraction) {
+            long n = count.sum(), seen = 0;
+            for (int b = 0; b < 64; b++) {
+                seen += buckets.get(b);
+                if (seen > 0 && seen >= fraction * n) return b >= 62 ? Long.MAX_VALUE : 1L << (b + 1);
+            }
+            return 0;
+        }
+
+        /**
+         * Returns a string with the count, mean and percentiles in milliseconds.
+         */
+        public String toString() {
+            long n = count.sum();
+            return String.format("%d ops, mean %.3f ms, p50 < %.3f ms, p99 < %.3f ms, max < %.3f ms", n,
+                    n == 0 ? 0 : total.sum() / 1e6 / n, percentile(0.5) / 1e6, percentile(0.99) / 1e6, percentile(1) / 1e6);
+        }
+    }
+
+    /**
+     * JMX view of the metrics
+     */
+    public interface MetricsMXBean {
+        boolean isEnabled();
+
+        void setEnabled(boolean on);
+
+        long getSearches();
+
+        long getVerticesVisited();
+
+        long getEdgesScanned();
+
+        Map<String, String> getLatencies();
+
+        Map<String, Long> getGauges();
+
+        void reset();
+    }
+
+    private static class Bean implements MetricsMXBean {
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean on) {
+            Metrics.setEnabled(on);
+        }
+
+        public long getSearches() {
+            return searches.sum();
+        }
+
+        public long getVerticesVisited() {
+            return verticesVisited.sum();
+        }
+
+        public long getEdgesScanned() {
+            return edgesScanned.sum();
+        }
+
+        public Map<String, String> getLatencies() {
+            return latencySummaries();
+        }
+
+        public Map<String, Long> getGauges() {
+            return gaugeValues();
+        }
+
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
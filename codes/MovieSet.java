@@ -0,0 +1,167 @@
+import java.util.*;
+
+/**
+ * The movies two actors made together, as the label of both co-star edges between them.
+ * Movies are kept as ascending int ids into a title table shared by every label of a graph, so a label is one small
+ * int array instead of a HashSet of boxed String entries, and a title is only looked up when the label is read,
+ * which happens for the few edges of a printed path. Iteration lists titles in id order.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class MovieSet extends AbstractSet<String> {
+    private static final int[] EMPTY = new int[0];
+
+    private final Titles titles; // shared title table
+    private int[] ids = EMPTY;   // movie ids, ascending, in ids[0 .. size)
+    private int size;            // number of movies
+
+    /**
+     * @param titles title table shared by the labels of a graph
+     */
+    public MovieSet(Titles titles) {
+        this.titles = titles;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(Object title) {
+        int id = titles.idOf(title);
+        return id >= 0 && Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Add a movie, adding its title to the table if it is new
+     */
+    public boolean add(String title) {
+        return addId(titles.intern(title));
+    }
+
+    /**
+     * Add a movie by id; the title table is only read, so labels can be filled from several threads once every
+     * title is in the table, as long as each label is filled by one thread
+     * @param id movie id in the title table
+     * @return true if the movie was not in the set
+     */
+    boolean addId(int id) {
+        int at = Arrays.binarySearch(ids, 0, size, id);
+        if (at >= 0) return false;
+        at = -at - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(2, 2 * size));
+        }
+        System.arraycopy(ids, at, ids, at + 1, size - at);
+        ids[at] = id;
+        size++;
+        return true;
+    }
+
+    /**
+     * Merge another MovieSet over the same titles without looking titles up
+     */
+    @Override
+    public boolean addAll(Collection<? extends String> movies) {
+        if (!(movies instanceof MovieSet) || ((MovieSet) movies).titles != titles) {
+            return super.addAll(movies);
+        }
+        MovieSet other = (MovieSet) movies;
+        int[] merged = new int[size + other.size];
+        int i = 0, j = 0, k = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && ids[i] < other.ids[j])) merged[k++] = ids[i++];
+            else if (i == size || other.ids[j] < ids[i]) merged[k++] = other.ids[j++];
+            else { // in both
+                merged[k++] = ids[i++];
+                j++;
+            }
+        }
+        boolean changed = k > size;
+        ids = merged;
+        size = k;
+        return changed;
+    }
+
+    public boolean remove(Object title) {
+        int id = titles.idOf(title);
+        int at = id < 0 ? -1 : Arrays.binarySearch(ids, 0, size, id);
+        if (at < 0) return false;
+        removeAt(at);
+        return true;
+    }
+
+    private void removeAt(int at) {
+        System.arraycopy(ids, at + 1, ids, at, size - at - 1);
+        size--;
+    }
+
+    public Iterator<String> iterator() {
+        return new Iterator<String>() {
+            private int next = 0;    // index of the next movie
+            private int last = -1;   // index of the movie next() returned, -1 once it is removed
+
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            public String next() {
+                if (next >= size) throw new NoSuchElementException();
+                last = next;
+                return titles.title(ids[next++]);
+            }
+
+            public void remove() {
+                if (last < 0) throw new IllegalStateException();
+                removeAt(last);
+                next = last;
+                last = -1;
+            }
+        };
+    }
+
+    /**
+     * Movie titles numbered in the order they were first seen, shared by the labels of one graph
+     */
+    public static class Titles {
+        private final Map<String, Integer> ids = new HashMap<String, Integer>(); // title --> id
+        private final List<String> titles = new ArrayList<String>();             // id --> title
+
+        /**
+         * @param title a movie title
+         * @return its id, numbering it if it is new
+         */
+        public int intern(String title) {
+            Integer id = ids.get(title);
+            if (id == null) {
+                id = titles.size();
+                ids.put(title, id);
+                titles.add(title);
+            }
+            return id;
+        }
+
+        /**
+         * @param title a movie title
+         * @return its id, or -1 if it has none
+         */
+        public int idOf(Object title) {
+            Integer id = ids.get(title);
+            return id == null ? -1 : id;
+        }
+
+        /**
+         * @param id a movie id
+         * @return its title
+         */
+        public String title(int id) {
+            return titles.get(id);
+        }
+
+        /**
+         * @return number of titles
+         */
+        public int size() {
+            return titles.size();
+        }
+    }
+}
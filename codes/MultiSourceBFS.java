@@ -0,0 +1,130 @@
+import java.util.Arrays;
+
+/**
+ * Multi-source BFS (MS-BFS) over a CSRGraph that runs up to 64 breadth-first searches at once.
+ * Every vertex carries one bit per source in a long, so a single scan of a vertex's neighbors advances every
+ * search that reached it on the same level instead of repeating the scan once per source.
+ * For each source it reports the number of reached vertices and the sum of their distances, which is what
+ * connected actors and average separation are made of.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class MultiSourceBFS<V> {
+    public static final int WIDTH = Long.SIZE; // sources per run
+
+    private final CSRGraph<V> graph; // graph the searches run on
+    private final long[] seen;       // id --> sources that have reached the vertex
+    private final long[] visit;      // id --> sources whose frontier holds the vertex on this level
+    private final long[] visitNext;  // id --> sources whose frontier holds the vertex on the next level
+    private final int[] reached = new int[WIDTH];            // source --> reached vertices, source included
+    private final long[] totalSeparation = new long[WIDTH];  // source --> sum of distances to reached vertices
+    private int sources;             // number of sources in the last run
+
+    /**
+     * Create the bitmaps for a graph; one instance is meant to be reused by one thread
+     * @param graph the graph
+     */
+    public MultiSourceBFS(CSRGraph<V> graph) {
+        this.graph = graph;
+        int n = graph.numVertices();
+        seen = new long[n];
+        visit = new long[n];
+        visitNext = new long[n];
+    }
+
+    /**
+     * @return the graph the searches run on
+     */
+    public CSRGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * Run BFS from up to WIDTH sources at once, following out neighbors
+     * @param ids source ids
+     * @param from index of the first source in ids
+     * @param count number of sources, at most WIDTH
+     */
+    public void run(int[] ids, int from, int count) {
+        if (count > WIDTH) {
+            throw new IllegalArgumentException("at most " + WIDTH + " sources per run");
+        }
+        int[] offsets = graph.outOffsets(), targets = graph.outTargets();
+        int n = seen.length;
+        Arrays.fill(seen, 0);
+        Arrays.fill(visit, 0);
+        Arrays.fill(visitNext, 0);
+        sources = count;
+        for (int i = 0; i < count; i++) {
+            seen[ids[from + i]] |= 1L << i;
+            visit[ids[from + i]] |= 1L << i;
+            reached[i] = 1;
+            totalSeparation[i] = 0;
+        }
+
+        boolean active = count > 0;
+        long scanned = 0;
+        for (int level = 1; active; level++) {
+            // one scan per frontier vertex carries every search that has it in its frontier
+            for (int u = 0; u < n; u++) {
+                long bits = visit[u];
+                if (bits == 0) continue;
+                scanned += offsets[u + 1] - offsets[u];
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    visitNext[targets[e]] |= bits;
+                }
+            }
+            active = false;
+            for (int v = 0; v < n; v++) {
+                long next = visitNext[v] & ~seen[v]; // searches reaching v for the first time
+                visitNext[v] = 0;
+                visit[v] = next;
+                if (next == 0) continue;
+                active = true;
+                seen[v] |= next;
+                for (; next != 0; next &= next - 1) {
+                    int i = Long.numberOfTrailingZeros(next);
+                    reached[i]++;
+                    totalSeparation[i] += level;
+                }
+            }
+        }
+        long visited = 0;
+        for (int i = 0; i < count; i++) {
+            visited += reached[i];
+        }
+        Metrics.searched(count, visited, scanned); // edges counted once per scan, however many searches it carried
+    }
+
+    /**
+     * @param i index of a source in the last run
+     * @return number of vertices it reached, itself included
+     */
+    public int reachedCount(int i) {
+        checkSource(i);
+        return reached[i];
+    }
+
+    /**
+     * @param i index of a source in the last run
+     * @return sum of the distances from it to every vertex it reached
+     */
+    public long totalSeparation(int i) {
+        checkSource(i);
+        return totalSeparation[i];
+    }
+
+    /**
+     * @param i index of a source in the last run
+     * @return average separation with the source as the center, as GraphLibrary.averageSeparation computes it
+     */
+    public double averageSeparation(int i) {
+        return (double) totalSeparation(i) / reachedCount(i);
+    }
+
+    private void checkSource(int i) {
+        if (i < 0 || i >= sources) {
+            throw new IndexOutOfBoundsException("source " + i + " was not part of the last run");
+        }
+    }
+}
@@ -0,0 +1,323 @@
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Actor names for resolving command arguments: exact and case-insensitive lookup, prefix completion and the
+ * closest names to a misspelt one.
+ * Names are compared by a key that ignores case and accents. The keys are kept sorted in one array, so the names
+ * with a prefix are one binary search and a run of the array. Fuzzy matching uses a trigram index: the posting
+ * lists of every trigram are int runs of one array, as in CSRGraph, and the names sharing the most trigrams with
+ * the query are reranked by edit distance. Only the touched names are counted, in scratch arrays kept per thread,
+ * and the query's posting lists are counted rarest first up to POSTINGS entries, so a lookup costs at most that
+ * many counts rather than one per name.
+ * Several actors may share a name and so a vertex; their ids are kept so "#<id>" picks one out and suggestions can
+ * list them. The index is immutable and can be read by any number of threads.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class NameIndex {
+    public static final int CANDIDATES = 32;  // names reranked by edit distance per fuzzy match, at least
+    public static final int POSTINGS = 1 << 15; // most postings counted per fuzzy match, rarest trigrams first ...
+    public static final int MIN_GRAMS = 3;      // ... though never fewer trigrams than this
+
+    private final String[] names;                  // distinct names, sorted by key
+    private final String[] keys;                   // key of each name, ascending
+    private final Map<String, Integer> byKey;      // key --> index of its name, -1 if several names share the key
+    private final Set<String> exact;               // every name as given
+    private final Map<String, String> byId;        // actor id --> name
+    private final Map<String, List<String>> ids;   // name --> actor ids, for names at least one actor has
+    private final long[] grams;                    // distinct trigram codes, ascending
+    private final int[] gramOffsets;               // trigram i's names are gramNames[gramOffsets[i] .. gramOffsets[i+1])
+    private final int[] gramNames;                 // name indexes, grouped by trigram
+    private final int[] gramCounts;                // name index --> number of distinct trigrams in its key
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new); // counts for suggest
+
+    /**
+     * Index the names of a graph's actors
+     * @param names every vertex name
+     * @param actors actor id --> actor name, as in BaconGame.actorsMap; may be empty
+     */
+    public NameIndex(Iterable<String> names, Map<String, String> actors) {
+        TreeMap<String, String> sorted = new TreeMap<String, String>(); // name --> key, deduplicated
+        for (String name : names) {
+            sorted.put(name, key(name));
+        }
+        exact = new HashSet<String>(sorted.keySet());
+        this.names = sorted.keySet().toArray(new String[0]);
+        Arrays.sort(this.names, Comparator.comparing((String name) -> sorted.get(name)).thenComparing(name -> name));
+        keys = new String[this.names.length];
+        byKey = new HashMap<String, Integer>();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = sorted.get(this.names[i]);
+            byKey.merge(keys[i], i, (first, again) -> -1);
+        }
+        byId = new HashMap<String, String>();
+        ids = new HashMap<String, List<String>>();
+        for (Map.Entry<String, String> actor : actors.entrySet()) {
+            byId.put(actor.getKey(), actor.getValue());
+            ids.computeIfAbsent(actor.getValue(), name -> new ArrayList<String>(1)).add(actor.getKey());
+        }
+        for (List<String> shared : ids.values()) {
+            shared.sort(Comparator.comparing(String::length).thenComparing(id -> id)); // numeric ids in numeric order
+        }
+
+        // trigram posting lists: count, lay out, fill
+        gramCounts = new int[keys.length];
+        Map<Long, Integer> counts = new HashMap<Long, Integer>();
+        for (int i = 0; i < keys.length; i++) {
+            long[] mine = trigrams(keys[i]);
+            gramCounts[i] = mine.length;
+            for (long gram : mine) {
+                counts.merge(gram, 1, Integer::sum);
+            }
+        }
+        grams = new long[counts.size()];
+        int g = 0;
+        for (long gram : counts.keySet()) {
+            grams[g++] = gram;
+        }
+        Arrays.sort(grams);
+        gramOffsets = new int[grams.length + 1];
+        for (int i = 0; i < grams.length; i++) {
+            gramOffsets[i + 1] = gramOffsets[i] + counts.get(grams[i]);
+        }
+        gramNames = new int[gramOffsets[grams.length]];
+        int[] fill = Arrays.copyOf(gramOffsets, grams.length);
+        for (int i = 0; i < keys.length; i++) {
+            for (long gram : trigrams(keys[i])) {
+                gramNames[fill[Arrays.binarySearch(grams, gram)]++] = i;
+            }
+        }
+    }
+
+    /**
+     * @return number of distinct names
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * The name an argument stands for: the name itself, "#" and an actor id, or a name differing only in case or
+     * accents from exactly one name
+     * @param argument what was typed
+     * @return the name, or null if the argument matches none or several
+     */
+    public String resolve(String argument) {
+        if (exact.contains(argument)) return argument;
+        if (argument.startsWith("#")) {
+            String name = byId.get(argument.substring(1).trim());
+            return name != null && exact.contains(name) ? name : null;
+        }
+        Integer at = byKey.get(key(argument));
+        return at == null || at < 0 ? null : names[at];
+    }
+
+    /**
+     * @param name a name
+     * @return ids of the actors with that name, empty if none is known
+     */
+    public List<String> ids(String name) {
+        List<String> shared = ids.get(name);
+        return shared == null ? Collections.<String>emptyList() : Collections.unmodifiableList(shared);
+    }
+
+    /**
+     * @param name a name
+     * @return the name, followed by its actors' ids when several actors share it
+     */
+    public String describe(String name) {
+        List<String> shared = ids(name);
+        if (shared.size() < 2) return name;
+        StringBuilder described = new StringBuilder(name).append(" (");
+        for (int i = 0; i < shared.size(); i++) {
+            described.append(i == 0 ? "#" : ", #").append(shared.get(i));
+        }
+        return described.append(')').toString();
+    }
+
+    /**
+     * Names starting with a prefix, ignoring case and accents
+     * @param prefix the prefix
+     * @param limit most names to return
+     * @return the names in key order
+     */
+    public List<String> complete(String prefix, int limit) {
+        String start = key(prefix);
+        int from = lowerBound(start);
+        List<String> completions = new ArrayList<String>();
+        for (int i = from; i < keys.length && completions.size() < limit && keys[i].startsWith(start); i++) {
+            completions.add(names[i]);
+        }
+        return completions;
+    }
+
+    /**
+     * Names closest to a possibly misspelt one: the names sharing the most trigrams with it, by Dice coefficient,
+     * ordered by edit distance
+     * @param query the name as typed
+     * @param k most names to return
+     * @return the names, closest first; empty if none shares a trigram with the query
+     */
+    public List<String> suggest(String query, int k) {
+        String key = key(query);
+        long[] mine = trigrams(key);
+        // the query's trigrams that occur at all, rarest first
+        int[] lists = new int[mine.length];
+        int found = 0;
+        for (long gram : mine) {
+            int g = Arrays.binarySearch(grams, gram);
+            if (g >= 0) lists[found++] = g;
+        }
+        Integer[] rarest = new Integer[found];
+        for (int i = 0; i < found; i++) rarest[i] = lists[i];
+        Arrays.sort(rarest, Comparator.comparingInt(g -> gramOffsets[g + 1] - gramOffsets[g]));
+
+        // count shared trigrams for the names on the rarer lists only, resetting just those names afterwards
+        Scratch counts = scratch.get();
+        int[] shared = counts.shared(keys.length);
+        int touches = 0, counted = 0;
+        for (int r = 0; r < found; r++) {
+            int g = rarest[r], from = gramOffsets[g], to = gramOffsets[g + 1];
+            counted += to - from;
+            if (counted > POSTINGS && r >= MIN_GRAMS) break;
+            int[] touched = counts.touched(touches + to - from);
+            for (int p = from; p < to; p++) {
+                if (shared[gramNames[p]]++ == 0) touched[touches++] = gramNames[p];
+            }
+        }
+        // keep the best candidates by Dice coefficient with a bounded heap, worst on top
+        int keep = Math.max(CANDIDATES, 4 * k);
+        Comparator<Integer> byCount = Comparator.comparingDouble(i -> dice(shared[i], mine.length, gramCounts[i]));
+        PriorityQueue<Integer> heap = new PriorityQueue<Integer>(byCount);
+        int[] touched = counts.touched(touches);
+        double worst = 0; // Dice coefficient of the heap's top once the heap is full
+        for (int t = 0; t < touches; t++) {
+            int i = touched[t];
+            if (heap.size() < keep || dice(shared[i], mine.length, gramCounts[i]) > worst) {
+                if (heap.size() == keep) heap.remove();
+                heap.add(i);
+                if (heap.size() == keep) worst = dice(shared[heap.peek()], mine.length, gramCounts[heap.peek()]);
+            }
+        }
+        for (int t = 0; t < touches; t++) {
+            shared[touched[t]] = 0;
+        }
+        // rerank by edit distance, then by the Dice coefficient over every trigram, frequent ones included
+        List<Integer> candidates = new ArrayList<Integer>(heap);
+        Map<Integer, Integer> distance = new HashMap<Integer, Integer>();
+        Map<Integer, Double> similarity = new HashMap<Integer, Double>();
+        for (int i : candidates) {
+            distance.put(i, editDistance(key, keys[i]));
+            similarity.put(i, dice(common(mine, trigrams(keys[i])), mine.length, gramCounts[i]));
+        }
+        candidates.sort(Comparator.comparing((Integer i) -> distance.get(i))
+                .thenComparing((Integer i) -> similarity.get(i), Comparator.reverseOrder()).thenComparing(i -> i));
+        List<String> closest = new ArrayList<String>();
+        for (int i = 0; i < candidates.size() && i < k; i++) {
+            closest.add(names[candidates.get(i)]);
+        }
+        return closest;
+    }
+
+    /**
+     * Number of codes two ascending trigram arrays share
+     */
+    private static int common(long[] a, long[] b) {
+        int shared = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) i++;
+            else if (a[i] > b[j]) j++;
+            else {
+                shared++;
+                i++;
+                j++;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Trigram counts of one thread's suggest calls: every count is back to zero between calls, so only the names
+     * a call touches are ever written
+     */
+    private static class Scratch {
+        private int[] shared = new int[0];  // name index --> trigrams shared with the query
+        private int[] touched = new int[0]; // names with a nonzero count, in the order first counted
+
+        int[] shared(int names) {
+            if (shared.length < names) shared = new int[names];
+            return shared;
+        }
+
+        int[] touched(int needed) {
+            if (touched.length < needed) touched = Arrays.copyOf(touched, Math.max(needed, 2 * touched.length));
+            return touched;
+        }
+    }
+
+    /**
+     * Dice coefficient of two trigram sets
+     */
+    private static double dice(int shared, int a, int b) {
+        return 2.0 * shared / (a + b);
+    }
+
+    /**
+     * First index whose key is not below a key
+     */
+    private int lowerBound(String key) {
+        int low = 0, high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(key) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Lowercase, without accents and with runs of spaces collapsed
+     */
+    static String key(String name) {
+        String plain = Normalizer.normalize(name, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return plain.toLowerCase(Locale.ROOT).trim().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Distinct trigrams of a key padded with two spaces in front and one behind, so short names and the start of a
+     * name weigh in; each trigram is its three chars packed into a long
+     */
+    static long[] trigrams(String key) {
+        String padded = "  " + key + " ";
+        long[] codes = new long[padded.length() - 2];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        Arrays.sort(codes);
+        int distinct = 0;
+        for (int i = 0; i < codes.length; i++) {
+            if (i == 0 || codes[i] != codes[i - 1]) codes[distinct++] = codes[i];
+        }
+        return Arrays.copyOf(codes, distinct);
+    }
+
+    /**
+     * Levenshtein distance, with two rows
+     */
+    static int editDistance(String a, String b) {
+        int[] previous = new int[b.length() + 1], current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) previous[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int substitute = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitute, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
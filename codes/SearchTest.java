@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Check the fast searches against the plain BFS of GraphLibrary on the full data set: the direction-optimizing BFS,
+ * the bidirectional search on the co-star and the bipartite graph, the distance ranges of a tree and the in-place
+ * repair of a tree after credit changes.
+ * Prints one line per check and exits with status 1 if any failed.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class SearchTest {
+    private static boolean failed; // some check failed
+
+    public static void main(String[] args) throws IOException {
+        BaconGame.loadGraph("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt");
+        IndexedGraph<String> graph = BaconGame.indexedGraph();
+        List<String> actors = new ArrayList<String>();
+        for (String actor : graph.vertices()) {
+            actors.add(actor);
+        }
+        Random random = new Random(9);
+        List<String> roots = new ArrayList<String>();
+        roots.add("Kevin Bacon");
+        for (int i = 0; i < 20; i++) {
+            roots.add(actors.get(random.nextInt(actors.size())));
+        }
+
+        checkSearch(graph, roots);
+        checkPaths("", graph, actors, roots, random);
+        checkPaths("bipartite ", BulkLoader.load("inputs/actors.txt", "inputs/movies.txt", "inputs/movie-actors.txt", 1)
+                .bipartiteGraph(), actors, roots, random);
+        checkRanges(graph, actors);
+        checkRepair(actors, random); // changes the game's graph, so it runs last
+
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Direction-optimizing BFS: the same distances as a plain BFS, and every parent is a co-star one step closer
+     */
+    private static void checkSearch(IndexedGraph<String> graph, List<String> roots) {
+        int mismatches = 0;
+        for (String root : roots) {
+            ShortestPathTree<String> tree = GraphLibrary.BFS(graph, root, null);
+            mismatches += compare(graph, tree, GraphLibrary.BFS(graph, root));
+        }
+        check("direction-optimizing BFS matches plain BFS from " + roots.size() + " roots", mismatches == 0);
+    }
+
+    /**
+     * Bidirectional search: a path as short as the BFS distance, along edges of the graph, or none if unreached
+     * @param kind what graph it is, to name the check
+     */
+    private static void checkPaths(String kind, IndexedGraph<String> graph, List<String> actors, List<String> roots,
+                                   Random random) {
+        BidirectionalSearch<String> bidirectional = new BidirectionalSearch<String>(graph);
+        int mismatches = 0;
+        for (String source : roots) {
+            ShortestPathTree<String> tree = GraphLibrary.BFS(graph, source, null);
+            for (int i = 0; i < 50; i++) {
+                String target = actors.get(random.nextInt(actors.size()));
+                List<String> path = bidirectional.path(source, target);
+                if (path.size() - 1 != tree.getDistance(target) || (!path.isEmpty() && (!path.get(0).equals(source)
+                        || !path.get(path.size() - 1).equals(target) || !isPath(graph, path)))) {
+                    mismatches++;
+                }
+            }
+            if (bidirectional.path(source, source).size() != 1) mismatches++;
+        }
+        check(kind + "bidirectional search matches BFS on " + roots.size() * 51 + " pairs", mismatches == 0);
+    }
+
+    /**
+     * Distance ranges: the reached actors with a distance in the range, closest first, for clamped and empty ranges
+     */
+    private static void checkRanges(IndexedGraph<String> graph, List<String> actors) {
+        ShortestPathTree<String> bacon = GraphLibrary.BFS(graph, "Kevin Bacon", null);
+        int deepest = 0;
+        for (String actor : actors) {
+            deepest = Math.max(deepest, bacon.getDistance(actor));
+        }
+        int mismatches = 0;
+        for (int low = -2; low <= deepest + 2; low++) {
+            for (int high = -2; high <= deepest + 2; high++) {
+                mismatches += compare(bacon, actors, low, high);
+            }
+        }
+        mismatches += compare(bacon, actors, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        mismatches += compare(bacon, actors, Integer.MAX_VALUE, Integer.MIN_VALUE);
+        check("verticesBetween matches the distances for every range up to " + (deepest + 2), mismatches == 0);
+    }
+
+    /**
+     * Repair: after each batch of credit changes the center's tree has the distances of a new BFS
+     */
+    private static void checkRepair(List<String> actors, Random random) {
+        DynamicGraph<String> dynamic = BaconGame.dynamicGraph();
+        List<String> movies = new ArrayList<String>();
+        int mismatches = 0;
+        int rounds = 0;
+        for (int step = 0; step < 2000; step++) {
+            int change = random.nextInt(4);
+            if (change == 0 || movies.isEmpty()) {
+                String movie = "Movie " + random.nextInt(100);
+                movies.add(movie);
+                BaconGame.addCredit(movie, random.nextInt(20) == 0 ? "Actor " + step : actors.get(random.nextInt(actors.size())));
+            }
+            else if (change == 1) { // a credit of a test movie
+                String movie = movies.get(random.nextInt(movies.size()));
+                Set<String> cast = dynamic.castOf(movie);
+                if (!cast.isEmpty()) BaconGame.removeCredit(movie, cast.iterator().next());
+            }
+            else if (change == 2) { // a credit of the data set
+                String actor = actors.get(random.nextInt(actors.size()));
+                for (String coStar : dynamic.outNeighbors(actor)) {
+                    BaconGame.removeCredit(dynamic.getLabel(actor, coStar).iterator().next(), actor);
+                    break;
+                }
+            }
+            else {
+                BaconGame.removeMovie(movies.get(random.nextInt(movies.size())));
+            }
+            if (step % 100 == 99) {
+                rounds++;
+                mismatches += compare(dynamic, BaconGame.shortestPathTree, GraphLibrary.BFS(dynamic, BaconGame.currentCenter));
+            }
+        }
+        check("repaired tree matches a new BFS after " + rounds + " rounds of credit changes", mismatches == 0);
+    }
+
+    /**
+     * Compare a tree with the tree graph of a plain BFS from the same root
+     * @return number of vertices whose distance, path or count differs
+     */
+    private static int compare(IndexedGraph<String> graph, ShortestPathTree<String> tree, Graph<String, Set<String>> plain) {
+        int mismatches = tree.reachedCount() == plain.numVertices() ? 0 : 1;
+        long total = 0;
+        for (String actor : graph.vertices()) {
+            int distance = plain.hasVertex(actor) ? GraphLibrary.getPath(plain, actor).size() - 1 : -1;
+            total += Math.max(distance, 0);
+            List<String> path = tree.getPath(actor);
+            if (tree.getDistance(actor) != distance || path.size() - 1 != distance || !isPath(graph, path)) {
+                mismatches++;
+            }
+        }
+        return mismatches + (tree.totalSeparation() == total ? 0 : 1);
+    }
+
+    /**
+     * Compare verticesBetween with a filter of every actor's distance
+     * @return 1 if the range differs, 0 if it is the same
+     */
+    private static int compare(ShortestPathTree<String> tree, List<String> actors, int low, int high) {
+        List<String> range = tree.verticesBetween(low, high);
+        Set<String> expected = new HashSet<String>();
+        for (String actor : actors) {
+            int distance = tree.getDistance(actor);
+            if (distance >= 0 && distance >= low && distance <= high) expected.add(actor);
+        }
+        int previous = 0;
+        for (String actor : range) {
+            if (tree.getDistance(actor) < previous) return 1;
+            previous = tree.getDistance(actor);
+        }
+        return range.size() == expected.size() && expected.containsAll(range) ? 0 : 1;
+    }
+
+    /**
+     * @return true if consecutive vertices of the path are linked in the graph
+     */
+    private static boolean isPath(Graph<String, Set<String>> graph, List<String> path) {
+        for (int i = 0; i + 1 < path.size(); i++) {
+            if (!graph.hasEdge(path.get(i), path.get(i + 1))) return false;
+        }
+        return true;
+    }
+
+    private static void check(String what, boolean passed) {
+        System.out.println((passed ? "passed: " : "FAILED: ") + what);
+        failed |= !passed;
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Closeness engine that computes the average separation of every vertex when it serves as the center of the universe.
+ * Each vertex costs exactly one BFS, the result is cached, and all sources are spread over every core.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class SeparationEngine<V,E> {
+    private final Graph<V,E> graph; // graph the separations are computed on
+    private final Map<V, Double> averages = new ConcurrentHashMap<V, Double>(); // vertex --> average separation
+    private final ThreadLocal<ShortestPathTree<V>> trees;  // one reusable tree per worker when the graph is indexed
+    private final ThreadLocal<MultiSourceBFS<V>> batches;  // one reusable MS-BFS per worker when the graph is compact
+    private final TreeCache<V> cache;                      // trees of recent centers, or null
+
+    /**
+     * Create an engine over a graph
+     * @param graph the graph, which must not change while the engine is in use
+     */
+    public SeparationEngine(Graph<V,E> graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Create an engine over a graph that shares a cache of shortest path trees: a single average separation
+     * is read from, and kept in, the cache, and a full ranking reuses whatever trees are cached already
+     * @param graph the graph, which must not change while the engine is in use
+     * @param cache cache of trees over the same graph, or null
+     */
+    @SuppressWarnings("unchecked")
+    public SeparationEngine(Graph<V,E> graph, TreeCache<V> cache) {
+        this.graph = graph;
+        this.cache = cache;
+        if (graph instanceof IndexedGraph) {
+            IndexedGraph<V> indexed = (IndexedGraph<V>) graph;
+            trees = ThreadLocal.withInitial(() -> new ShortestPathTree<V>(indexed));
+        }
+        else {
+            trees = null;
+        }
+        if (graph instanceof CSRGraph) {
+            CSRGraph<V> compact = (CSRGraph<V>) graph;
+            batches = ThreadLocal.withInitial(() -> new MultiSourceBFS<V>(compact));
+        }
+        else {
+            batches = null;
+        }
+    }
+
+    /**
+     * Average separation of a vertex, computed with one BFS the first time it is asked for
+     * @param v the center vertex
+     * @return the average separation, or -1 if the vertex is not in the graph
+     */
+    public double averageSeparation(V v) {
+        if (!graph.hasVertex(v)) {
+            return -1;
+        }
+        Double average = averages.get(v);
+        if (average == null && cache != null) { // keep the tree, its center is likely to be visited
+            ShortestPathTree<V> tree = cache.get(v);
+            average = tree.stats().averageSeparation();
+            averages.put(v, average);
+        }
+        else if (average == null) {
+            average = separationFrom(v);
+            averages.put(v, average);
+        }
+        return average;
+    }
+
+    /**
+     * Compute the average separation of every vertex that is not cached yet, in parallel.
+     * A compact co-star graph runs the sources MultiSourceBFS.WIDTH at a time; any other graph runs one BFS per vertex.
+     */
+    public void computeAll() {
+        List<V> missing = new ArrayList<V>();
+        for (V v : graph.vertices()) {
+            ShortestPathTree<V> cached = cache == null || averages.containsKey(v) ? null : cache.cached(v);
+            if (cached != null) {
+                averages.put(v, cached.stats().averageSeparation());
+            }
+            else if (!averages.containsKey(v)) {
+                missing.add(v);
+            }
+        }
+        if (batches == null) {
+            missing.parallelStream().forEach(v -> averages.put(v, separationFrom(v)));
+            return;
+        }
+        CSRGraph<V> compact = batches.get().graph();
+        int[] ids = new int[missing.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = compact.idOf(missing.get(i));
+        }
+        int width = MultiSourceBFS.WIDTH;
+        IntStream.range(0, (ids.length + width - 1) / width).parallel().forEach(batch -> {
+            int from = batch * width, count = Math.min(width, ids.length - from);
+            MultiSourceBFS<V> bfs = batches.get();
+            bfs.run(ids, from, count);
+            for (int i = 0; i < count; i++) {
+                averages.put(compact.vertexAt(ids[from + i]), bfs.averageSeparation(i));
+            }
+        });
+    }
+
+    /**
+     * The num vertices with the lowest average separation, best first
+     * @param num number of vertices
+     * @return list of vertices
+     */
+    public List<V> top(int num) {
+        return select(num, Comparator.comparingDouble(this::averageSeparation));
+    }
+
+    /**
+     * The num vertices with the highest average separation, worst first
+     * @param num number of vertices
+     * @return list of vertices
+     */
+    public List<V> bottom(int num) {
+        Comparator<V> ascending = Comparator.comparingDouble(this::averageSeparation);
+        return select(num, ascending.reversed());
+    }
+
+    /**
+     * Forget every cached separation; must be called whenever the graph changes
+     */
+    public void invalidate() {
+        averages.clear();
+    }
+
+    /**
+     * Keep the first num vertices in order with a bounded heap instead of sorting every vertex
+     * @param num number of vertices
+     * @param order order of the result
+     * @return list of vertices
+     */
+    private List<V> select(int num, Comparator<V> order) {
+        if (num <= 0) {
+            return new ArrayList<V>();
+        }
+        computeAll();
+        // the heap holds the best num so far with the worst of them on top, ready to be evicted
+        PriorityQueue<V> heap = new PriorityQueue<V>(order.reversed());
+        for (V v : graph.vertices()) {
+            if (heap.size() < num) {
+                heap.add(v);
+            }
+            else if (order.compare(v, heap.peek()) < 0) {
+                heap.remove();
+                heap.add(v);
+            }
+        }
+        ArrayList<V> sortedList = new ArrayList<V>(heap);
+        sortedList.sort(order);
+        return sortedList;
+    }
+
+    /**
+     * One BFS from the center, summing the distance of every reached vertex
+     * @param center the center vertex
+     * @return total separation divided by the number of reached vertices, center included
+     */
+    private double separationFrom(V center) {
+        if (trees != null) { // primitive BFS over the indexed graph
+            ShortestPathTree<V> tree = trees.get();
+            tree.search(tree.graph().idOf(center));
+            return tree.stats().averageSeparation();
+        }
+        Set<V> visited = new HashSet<V>();
+        ArrayDeque<V> frontier = new ArrayDeque<V>();
+        visited.add(center);
+        frontier.add(center);
+        long totalSeparation = 0;
+        int distance = 0;
+        while (!frontier.isEmpty()) {
+            distance++;
+            // drain one whole level so every vertex found here is exactly distance steps away
+            for (int i = frontier.size(); i > 0; i--) {
+                V u = frontier.remove();
+                for (V v : graph.outNeighbors(u)) {
+                    if (visited.add(v)) {
+                        totalSeparation += distance;
+                        frontier.add(v);
+                    }
+                }
+            }
+        }
+        return (double) totalSeparation / visited.size();
+    }
+}
@@ -0,0 +1,76 @@
+import java.util.Arrays;
+
+/**
+ * Separation statistics of one center of the universe, gathered by the BFS while it builds the shortest path tree:
+ * how many actors sit at each distance, how many were reached, the sum and the largest of their distances.
+ * Everything else (connected actors, average separation) is derived from those, so no second walk is needed.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class SeparationStats {
+    private final int[] histogram;        // distance --> number of reached actors at that distance
+    private final int reached;            // reached actors, center included
+    private final long totalSeparation;   // sum of the distances of the reached actors
+
+    /**
+     * @param histogram distance --> number of reached actors at that distance; kept, not copied
+     * @param reached reached actors, center included
+     * @param totalSeparation sum of the distances of the reached actors
+     */
+    SeparationStats(int[] histogram, int reached, long totalSeparation) {
+        this.histogram = histogram;
+        this.reached = reached;
+        this.totalSeparation = totalSeparation;
+    }
+
+    /**
+     * @return number of actors with a path to the center, center included
+     */
+    public int reachedCount() {
+        return reached;
+    }
+
+    /**
+     * @return sum of the distances from every reached actor to the center
+     */
+    public long totalSeparation() {
+        return totalSeparation;
+    }
+
+    /**
+     * @return average separation, center included, or -1 if nothing was reached
+     */
+    public double averageSeparation() {
+        return reached == 0 ? -1 : (double) totalSeparation / reached;
+    }
+
+    /**
+     * @return largest distance from the center to a reached actor (its eccentricity), or -1 if nothing was reached
+     */
+    public int eccentricity() {
+        return histogram.length - 1;
+    }
+
+    /**
+     * @param distance a distance
+     * @return number of actors at exactly that distance from the center
+     */
+    public int count(int distance) {
+        return distance >= 0 && distance < histogram.length ? histogram[distance] : 0;
+    }
+
+    /**
+     * @return distance --> number of actors at that distance, as a new array
+     */
+    public int[] histogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * Returns a string with the counts per distance.
+     */
+    public String toString() {
+        return "reached " + reached + ", average separation " + averageSeparation() + ", eccentricity " + eccentricity()
+                + ", per distance " + Arrays.toString(histogram);
+    }
+}
@@ -0,0 +1,639 @@
+import java.util.*;
+
+/**
+ * Shortest path tree of an IndexedGraph held in reusable primitive buffers.
+ * Every reached vertex knows its parent (the next vertex on a shortest path to the root) and its distance,
+ * and the vertices are kept in the order BFS reached them, which also serves as the BFS queue.
+ * The search counts the vertices at each distance as it reaches them, so its SeparationStats cost no extra walk,
+ * and together with the reached order those counts index the vertices by distance.
+ * Re-rooting the same tree only resets the entries the previous search touched, so it allocates nothing.
+ * Over a DynamicGraph the tree can also be repaired after co-star edges come and go, touching only the vertices
+ * whose distance changes.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class ShortestPathTree<V> {
+    private static final int ALPHA = 14; // go bottom-up once the frontier has more than 1/ALPHA of the unexplored edges
+    private static final int BETA = 24;  // go back top-down once the frontier has fewer than 1/BETA of the vertices
+
+    private final IndexedGraph<V> graph; // graph the tree spans
+    private int[] parent;            // id --> parent id, -1 for the root
+    private int[] dist;              // id --> distance from the root, -1 when not reached
+    private int[] order;             // ids in the order they were reached; order[0] is the root
+    private long[] frontier;         // bitmap of the current level, used and cleared by bottom-up steps and repairs
+    private final int[] movieSearch; // movie id --> last bipartite search that expanded it, null for a co-star graph
+    private int searches;            // number of bipartite searches run so far
+    private int reached;             // number of reached vertices, root included
+    private boolean stale;           // a repair changed distances and order has to be sorted again
+    private long repaired;           // vertices the current repair has visited, for the metrics
+    private int[] levelSize = new int[16]; // distance --> reached vertices at that distance, counted as they are reached
+    private int levels;              // number of distances in levelSize
+    private long separation;         // sum of the distances of the reached vertices
+    private SeparationStats stats;   // statistics of the current search, made on first request
+
+    /**
+     * Create an empty tree with buffers sized for a graph
+     * @param graph the graph
+     */
+    public ShortestPathTree(IndexedGraph<V> graph) {
+        this(graph, null);
+    }
+
+    /**
+     * Create an empty tree over the buffers of a tree that is no longer used
+     * @param graph the graph
+     * @param spare cleared buffers of a tree over the same graph, or null to allocate new ones; ignored if too small
+     */
+    ShortestPathTree(IndexedGraph<V> graph, Buffers spare) {
+        this.graph = graph;
+        int n = graph.numVertices();
+        if (spare != null && spare.dist.length >= n) {
+            parent = spare.parent;
+            dist = spare.dist;
+            order = spare.order;
+            frontier = spare.frontier;
+        }
+        else {
+            parent = new int[n];
+            dist = new int[n];
+            order = new int[n];
+            frontier = new long[(n + 63) / 64];
+            Arrays.fill(dist, -1);
+        }
+        movieSearch = graph instanceof BipartiteGraph ? new int[((BipartiteGraph<V>) graph).numMovies()] : null;
+    }
+
+    /**
+     * @return the vertex-sized buffers, for a new tree once nothing reads this one any more
+     */
+    Buffers buffers() {
+        return new Buffers(parent, dist, order, frontier);
+    }
+
+    /**
+     * The vertex-sized buffers of a tree, which outlive it when a TreeCache recycles them
+     */
+    static class Buffers {
+        private final int[] parent, dist, order;
+        private final long[] frontier;
+
+        private Buffers(int[] parent, int[] dist, int[] order, long[] frontier) {
+            this.parent = parent;
+            this.dist = dist;
+            this.order = order;
+            this.frontier = frontier;
+        }
+
+        /**
+         * Mark every vertex unreached, as in a new tree
+         */
+        void clear() {
+            Arrays.fill(dist, -1);
+            Arrays.fill(frontier, 0);
+        }
+    }
+
+    /**
+     * @return the graph the tree spans
+     */
+    public IndexedGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * @return the root, or null if the tree is empty
+     */
+    public V root() {
+        return reached == 0 ? null : graph.vertexAt(order[0]);
+    }
+
+    /**
+     * @return number of vertices with a path to the root, root included
+     */
+    public int reachedCount() {
+        return reached;
+    }
+
+    /**
+     * @param v a vertex
+     * @return true if v has a path to the root
+     */
+    public boolean isReached(V v) {
+        int id = graph.idOf(v);
+        return id >= 0 && dist[id] >= 0;
+    }
+
+    /**
+     * @param v a vertex
+     * @return number of steps from v to the root, or -1 if there is no path
+     */
+    public int getDistance(V v) {
+        int id = graph.idOf(v);
+        return id < 0 ? -1 : dist[id];
+    }
+
+    /**
+     * @param id id of a vertex
+     * @return number of steps from it to the root, or -1 if there is no path
+     */
+    int distance(int id) {
+        return id < dist.length ? dist[id] : -1;
+    }
+
+    /**
+     * Path from a vertex back to the root, following parents
+     * @param v a vertex
+     * @return the path starting at v and ending at the root, empty if there is no path
+     */
+    public List<V> getPath(V v) {
+        int id = graph.idOf(v);
+        if (id < 0 || dist[id] < 0) {
+            return new ArrayList<V>();
+        }
+        List<V> path = new ArrayList<V>(dist[id] + 1);
+        for (; id >= 0; id = parent[id]) {
+            path.add(graph.vertexAt(id));
+        }
+        return path;
+    }
+
+    /**
+     * Reached vertices with a distance in a range, closest first.
+     * The reached vertices are kept grouped by distance and the search counted each group, so the range is
+     * a slice of the reached list found from the group sizes, and names are only looked up as the slice is read.
+     * @param low smallest distance
+     * @param high largest distance
+     * @return the vertices, sorted by distance, as a read-only view; copy it to keep it across a repair or re-root
+     */
+    public List<V> verticesBetween(int low, int high) {
+        sortOrder();
+        low = Math.min(Math.max(low, 0), levels); // levelSize may hold stale counts beyond levels
+        high = Math.min(high, levels - 1);
+        int start = 0;
+        for (int d = 0; d < low; d++) {
+            start += levelSize[d];
+        }
+        int end = start;
+        for (int d = low; d <= high; d++) {
+            end += levelSize[d];
+        }
+        int from = start, size = low > high ? 0 : end - start;
+        return new AbstractList<V>() {
+            public V get(int i) {
+                if (i < 0 || i >= size) throw new IndexOutOfBoundsException("index " + i);
+                return graph.vertexAt(order[from + i]);
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Vertices with no path to the root, in id order, found by walking the distances as the result is read
+     * @return a read-only view; it follows later searches and repairs of this tree
+     */
+    public Iterable<V> unreached() {
+        return () -> new Iterator<V>() {
+            private int next = advance(0); // id of the next unreached vertex
+
+            private int advance(int id) {
+                int n = graph.numVertices();
+                while (id < n && id < dist.length && dist[id] >= 0) id++;
+                return id;
+            }
+
+            public boolean hasNext() {
+                return next < graph.numVertices();
+            }
+
+            public V next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                V v = graph.vertexAt(next);
+                next = advance(next + 1);
+                return v;
+            }
+        };
+    }
+
+    /**
+     * @return total distance from every reached vertex to the root
+     */
+    public long totalSeparation() {
+        return stats().totalSeparation();
+    }
+
+    /**
+     * Separation statistics of the root, as counted by the search that built the tree
+     * @return the statistics
+     */
+    public SeparationStats stats() {
+        sortOrder();
+        if (stats == null) {
+            stats = new SeparationStats(Arrays.copyOf(levelSize, levels), reached, separation);
+        }
+        return stats;
+    }
+
+    /**
+     * @return bytes held by the tree's buffers
+     */
+    public long memoryBytes() {
+        long ints = parent.length + dist.length + order.length + (movieSearch == null ? 0 : movieSearch.length);
+        return 4 * ints + 8L * frontier.length;
+    }
+
+    /**
+     * Re-root the tree at a vertex, reusing the buffers
+     * @param start id of the new root
+     */
+    void search(int start) {
+        long edges;
+        if (graph instanceof BipartiteGraph) {
+            edges = searchBipartite((BipartiteGraph<V>) graph, start);
+        }
+        else if (graph instanceof DynamicGraph) {
+            ensureCapacity();
+            edges = searchNeighbors(start);
+        }
+        else {
+            edges = searchCoStars((CSRGraph<V>) graph, start);
+        }
+        Metrics.searched(reached, edges);
+    }
+
+    /**
+     * Re-root the tree with a direction-optimizing BFS over a co-star graph.
+     * Small frontiers are expanded top-down over out neighbors; once the frontier's edges outnumber the edges
+     * left among unvisited vertices, each unvisited vertex instead looks through its in neighbors for a parent
+     * in a bitmap of the frontier (bottom-up), switching back when the frontier shrinks again.
+     * Distances and reached vertices are the same as a plain BFS; only ties between equally short parents differ.
+     * @param start id of the new root
+     * @return number of edges looked at
+     */
+    private long searchCoStars(CSRGraph<V> graph, int start) {
+        clear();
+        int n = dist.length;
+        int[] outOffsets = graph.outOffsets();
+        long unexploredEdges = graph.numEdges() - (outOffsets[start + 1] - outOffsets[start]);
+        dist[start] = 0;
+        parent[start] = -1;
+        reach(start);
+        int levelStart = 0;
+        long edges = 0;
+        boolean bottomUp = false;
+        while (levelStart < reached) {
+            int levelEnd = reached; // the frontier is order[levelStart .. levelEnd)
+            long frontierEdges = 0;
+            for (int i = levelStart; i < levelEnd; i++) {
+                int u = order[i];
+                frontierEdges += outOffsets[u + 1] - outOffsets[u];
+            }
+            if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                bottomUp = true;
+            }
+            else if (bottomUp && levelEnd - levelStart < n / BETA) {
+                bottomUp = false;
+            }
+            if (bottomUp) {
+                edges += bottomUpStep(graph, levelStart, levelEnd);
+            }
+            else {
+                edges += frontierEdges;
+                topDownStep(graph, levelStart, levelEnd);
+            }
+            for (int i = levelEnd; i < reached; i++) {
+                int v = order[i];
+                unexploredEdges -= outOffsets[v + 1] - outOffsets[v];
+            }
+            levelStart = levelEnd;
+        }
+        return edges;
+    }
+
+    /**
+     * Expand one level by scanning the out neighbors of every frontier vertex
+     */
+    private void topDownStep(CSRGraph<V> graph, int levelStart, int levelEnd) {
+        int[] offsets = graph.outOffsets(), targets = graph.outTargets();
+        for (int i = levelStart; i < levelEnd; i++) { // order doubles as the queue: i dequeues, reached enqueues
+            int u = order[i];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    parent[v] = u;
+                    reach(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expand one level by letting every unvisited vertex look for a parent in the frontier bitmap
+     * @return number of edges looked at
+     */
+    private long bottomUpStep(CSRGraph<V> graph, int levelStart, int levelEnd) {
+        int[] offsets = graph.inOffsets(), sources = graph.inSources();
+        for (int i = levelStart; i < levelEnd; i++) {
+            int u = order[i];
+            frontier[u >>> 6] |= 1L << u;
+        }
+        int level = dist[order[levelStart]] + 1;
+        long edges = 0;
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] >= 0) continue;
+            int e = offsets[v];
+            for (; e < offsets[v + 1]; e++) {
+                int u = sources[e];
+                if ((frontier[u >>> 6] & (1L << u)) != 0) {
+                    dist[v] = level;
+                    parent[v] = u;
+                    reach(v);
+                    e++;
+                    break; // one parent is enough, which is where bottom-up saves its edge checks
+                }
+            }
+            edges += e - offsets[v];
+        }
+        for (int i = levelStart; i < levelEnd; i++) {
+            frontier[order[i] >>> 6] = 0;
+        }
+        return edges;
+    }
+
+    /**
+     * Re-root the tree with a BFS over an actor-movie graph, two hops (actor to movie to actor) per step.
+     * Each movie's cast is scanned at most once per search, so a search is linear in the number of credits.
+     * @param start id of the new root
+     * @return number of credits looked at, from either side
+     */
+    private long searchBipartite(BipartiteGraph<V> graph, int start) {
+        clear();
+        int[] filmOffsets = graph.filmOffsets(), filmMovies = graph.filmMovies();
+        int[] castOffsets = graph.castOffsets(), castActors = graph.castActors();
+        int search = ++searches;
+        dist[start] = 0;
+        parent[start] = -1;
+        reach(start);
+        long edges = 0;
+        for (int head = 0; head < reached; head++) {
+            int u = order[head];
+            edges += filmOffsets[u + 1] - filmOffsets[u];
+            for (int f = filmOffsets[u]; f < filmOffsets[u + 1]; f++) {
+                int m = filmMovies[f];
+                if (movieSearch[m] == search) continue; // its cast was reached through an earlier actor
+                movieSearch[m] = search;
+                edges += castOffsets[m + 1] - castOffsets[m];
+                for (int c = castOffsets[m]; c < castOffsets[m + 1]; c++) {
+                    int v = castActors[c];
+                    if (dist[v] < 0) {
+                        dist[v] = dist[u] + 1;
+                        parent[v] = u;
+                        reach(v);
+                    }
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Re-root the tree with a plain BFS through the Graph interface, for a graph that may change
+     * @param start id of the new root
+     * @return number of edges looked at
+     */
+    private long searchNeighbors(int start) {
+        clear();
+        dist[start] = 0;
+        parent[start] = -1;
+        reach(start);
+        long edges = 0;
+        for (int head = 0; head < reached; head++) {
+            int u = order[head];
+            for (V neighbor : graph.outNeighbors(graph.vertexAt(u))) {
+                edges++;
+                int v = graph.idOf(neighbor);
+                if (dist[v] < 0) {
+                    dist[v] = dist[u] + 1;
+                    parent[v] = u;
+                    reach(v);
+                }
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Repair the tree after co-star edges between an actor and some others were inserted in the graph.
+     * Distances can only shrink: each new edge that shortens a path starts a BFS that spreads the shorter
+     * distance for as long as it improves on the old one, so only vertices that actually moved closer are visited.
+     * @param actor the actor
+     * @param coStars the actors it was newly linked to
+     */
+    public void insertedEdges(V actor, List<V> coStars) {
+        if (reached == 0) return;
+        ensureCapacity();
+        int u = graph.idOf(actor);
+        long scanned = 0;
+        repaired = 0;
+        for (V coStar : coStars) {
+            int v = graph.idOf(coStar);
+            scanned += relax(u, v) + relax(v, u);
+        }
+        Metrics.searched(repaired, scanned);
+    }
+
+    /**
+     * Repair the tree after co-star edges between an actor and some others were removed from the graph.
+     * Distances can only grow, and only below a removed tree edge: every vertex outside those subtrees keeps
+     * its path, so the subtrees are cut loose, each of their vertices is offered the best distance through a
+     * neighbor outside, and the offers are settled shortest first (Dijkstra over unit edges). Vertices that get
+     * no offer have lost their last path to the root.
+     * @param actor the actor
+     * @param coStars the actors it is no longer linked to
+     */
+    public void removedEdges(V actor, List<V> coStars) {
+        if (reached == 0) return;
+        int u = graph.idOf(actor);
+        List<Integer> cut = new ArrayList<Integer>(); // vertices whose tree edge to their parent is gone
+        for (V coStar : coStars) {
+            int v = graph.idOf(coStar);
+            if (dist[v] >= 0 && parent[v] == u) cut.add(v);
+            else if (dist[u] >= 0 && parent[u] == v) cut.add(u);
+        }
+        if (cut.isEmpty()) return; // only non-tree edges went away, every distance stands
+        long scanned = 0;
+
+        // collect the subtrees below the cut, marked in the frontier bitmap; children are found among neighbors
+        List<Integer> subtree = new ArrayList<Integer>();
+        for (int root : cut) {
+            if (!marked(root)) mark(root, subtree);
+        }
+        for (int i = 0; i < subtree.size(); i++) {
+            int w = subtree.get(i);
+            for (V neighbor : graph.outNeighbors(graph.vertexAt(w))) {
+                int x = graph.idOf(neighbor);
+                scanned++;
+                if (!marked(x) && dist[x] >= 0 && parent[x] == w) mark(x, subtree);
+            }
+        }
+        for (int w : subtree) {
+            dist[w] = -1;
+        }
+        reached -= subtree.size();
+
+        // offers from the vertices that kept their distance, then settle shortest first
+        PriorityQueue<long[]> offers = new PriorityQueue<long[]>(Comparator.comparingLong((long[] offer) -> offer[0]));
+        for (int w : subtree) {
+            for (V neighbor : graph.inNeighbors(graph.vertexAt(w))) {
+                int x = graph.idOf(neighbor);
+                scanned++;
+                if (!marked(x) && dist[x] >= 0 && (dist[w] < 0 || dist[x] + 1 < dist[w])) {
+                    dist[w] = dist[x] + 1;
+                    parent[w] = x;
+                }
+            }
+            if (dist[w] >= 0) offers.add(new long[] {dist[w], w});
+        }
+        while (!offers.isEmpty()) {
+            long[] offer = offers.remove();
+            int w = (int) offer[1];
+            if (!marked(w) || offer[0] != dist[w]) continue; // settled already, or superseded by a better offer
+            frontier[w >>> 6] &= ~(1L << w);
+            reached++;
+            for (V neighbor : graph.outNeighbors(graph.vertexAt(w))) {
+                int x = graph.idOf(neighbor);
+                scanned++;
+                if (marked(x) && (dist[x] < 0 || dist[w] + 1 < dist[x])) {
+                    dist[x] = dist[w] + 1;
+                    parent[x] = w;
+                    offers.add(new long[] {dist[x], x});
+                }
+            }
+        }
+        for (int w : subtree) {
+            frontier[w >>> 6] = 0; // vertices that were never settled are unreachable now
+        }
+        stale = true;
+        Metrics.searched(subtree.size(), scanned);
+    }
+
+    /**
+     * Append a vertex whose distance is set to the reached vertices and count it at its distance.
+     * BFS reaches vertices level by level, so the distance is either the last level counted or the next one.
+     */
+    private void reach(int v) {
+        order[reached++] = v;
+        int d = dist[v];
+        if (d == levels) {
+            if (levels == levelSize.length) {
+                levelSize = Arrays.copyOf(levelSize, 2 * levels);
+            }
+            levelSize[levels++] = 0;
+        }
+        levelSize[d]++;
+        separation += d;
+    }
+
+    /**
+     * Offer v a path through u, then spread the improvement breadth-first
+     * @return number of edges looked at; the vertices that moved closer are counted in repaired
+     */
+    private long relax(int u, int v) {
+        if (dist[u] < 0 || (dist[v] >= 0 && dist[v] <= dist[u] + 1)) return 0;
+        long scanned = 0;
+        if (dist[v] < 0) reached++;
+        dist[v] = dist[u] + 1;
+        parent[v] = u;
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        queue.add(v);
+        while (!queue.isEmpty()) {
+            int w = queue.remove();
+            repaired++;
+            for (V neighbor : graph.outNeighbors(graph.vertexAt(w))) {
+                int x = graph.idOf(neighbor);
+                scanned++;
+                if (dist[x] < 0 || dist[w] + 1 < dist[x]) {
+                    if (dist[x] < 0) reached++;
+                    dist[x] = dist[w] + 1;
+                    parent[x] = w;
+                    queue.add(x);
+                }
+            }
+        }
+        stale = true;
+        return scanned;
+    }
+
+    private boolean marked(int v) {
+        return (frontier[v >>> 6] & (1L << v)) != 0;
+    }
+
+    private void mark(int v, List<Integer> subtree) {
+        frontier[v >>> 6] |= 1L << v;
+        subtree.add(v);
+    }
+
+    /**
+     * Grow the buffers to cover vertices added to the graph since they were sized
+     */
+    private void ensureCapacity() {
+        int n = graph.numVertices();
+        if (n <= dist.length) return;
+        int size = Math.max(n, dist.length + dist.length / 2);
+        int old = dist.length;
+        parent = Arrays.copyOf(parent, size);
+        dist = Arrays.copyOf(dist, size);
+        Arrays.fill(dist, old, size, -1);
+        order = Arrays.copyOf(order, size);
+        frontier = Arrays.copyOf(frontier, (size + 63) / 64);
+    }
+
+    /**
+     * After a repair, list the reached vertices in order again, by distance with a counting sort, and recount them
+     */
+    private void sortOrder() {
+        if (!stale) return;
+        stale = false;
+        stats = null;
+        levels = 0;
+        for (int v = 0; v < dist.length; v++) {
+            levels = Math.max(levels, dist[v] + 1);
+        }
+        int[] start = new int[levels + 1];
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] >= 0) start[dist[v] + 1]++;
+        }
+        levelSize = new int[Math.max(16, levels)];
+        System.arraycopy(start, 1, levelSize, 0, levels);
+        separation = 0;
+        for (int d = 0; d < levels; d++) {
+            separation += (long) d * levelSize[d];
+            start[d + 1] += start[d];
+        }
+        for (int v = 0; v < dist.length; v++) {
+            if (dist[v] >= 0) order[start[dist[v]]++] = v;
+        }
+    }
+
+    /**
+     * Forget the previous search, resetting only the vertices it reached
+     */
+    void clear() {
+        if (stale) { // order no longer lists exactly the reached vertices
+            Arrays.fill(dist, -1);
+            stale = false;
+        }
+        else {
+            for (int i = 0; i < reached; i++) {
+                dist[order[i]] = -1;
+            }
+        }
+        reached = 0;
+        levels = 0;
+        separation = 0;
+        stats = null;
+    }
+}
@@ -0,0 +1,181 @@
+import java.lang.ref.Cleaner;
+import java.util.*;
+
+/**
+ * Bounded cache of shortest path trees keyed by their center, so that going back to a recent center of the universe
+ * costs a lookup instead of a BFS.
+ * Trees are evicted least recently used first once their buffers together exceed a memory budget, and the cache
+ * counts its hits, misses and evictions. A cached tree is shared and must only be read; the cache has to be
+ * invalidated whenever the graph changes.
+ * An evicted tree may still be read by a session that got it earlier, so its buffers are not reused at once: a
+ * Cleaner clears them once the tree is unreachable, and the next miss builds its tree in them instead of
+ * allocating new ones.
+ * @author Aimen Abdulaziz
+ * @author Angelic McPherson
+ */
+public class TreeCache<V> {
+    public static final long DEFAULT_BUDGET = 64L << 20; // bytes of tree buffers kept by default
+    public static final int SPARES = 2;                  // most buffers of evicted trees kept for reuse
+    private static final Cleaner CLEANER = Cleaner.create(); // recycles the buffers of evicted trees
+
+    private final IndexedGraph<V> graph; // graph the trees span
+    private final long budget;           // bytes of tree buffers the cache may hold
+    private final LinkedHashMap<V, ShortestPathTree<V>> trees = new LinkedHashMap<V, ShortestPathTree<V>>(16, 0.75f, true); // center --> tree, least recently used first
+    private final ArrayDeque<ShortestPathTree.Buffers> spares = new ArrayDeque<ShortestPathTree.Buffers>(); // cleared buffers of evicted trees
+    private long bytes;                  // bytes held by the cached trees
+    private long hits, misses, evictions, reuses;
+
+    /**
+     * Create an empty cache
+     * @param graph the graph the trees span
+     * @param budget bytes of tree buffers to keep; the most recent tree is kept even if it alone is larger
+     */
+    public TreeCache(IndexedGraph<V> graph, long budget) {
+        this.graph = graph;
+        this.budget = budget;
+    }
+
+    /**
+     * @return the graph the trees span
+     */
+    public IndexedGraph<V> graph() {
+        return graph;
+    }
+
+    /**
+     * Tree rooted at a center, from the cache or computed with one BFS and cached.
+     * The BFS runs outside the lock, so threads missing on different centers do not wait for each other.
+     * @param center the center
+     * @return the tree, or null if the center is not in the graph
+     */
+    public ShortestPathTree<V> get(V center) {
+        synchronized (this) {
+            ShortestPathTree<V> tree = trees.get(center);
+            if (tree != null) {
+                hits++;
+                return tree;
+            }
+            misses++;
+        }
+        int id = graph.idOf(center);
+        if (id < 0) {
+            return null;
+        }
+        ShortestPathTree.Buffers spare;
+        synchronized (this) {
+            spare = spares.poll();
+            if (spare != null) reuses++;
+        }
+        ShortestPathTree<V> tree = new ShortestPathTree<V>(graph, spare);
+        tree.search(id);
+        synchronized (this) {
+            ShortestPathTree<V> raced = trees.get(center); // another thread computed it meanwhile
+            if (raced != null) {
+                return raced;
+            }
+            put(center, tree);
+        }
+        return tree;
+    }
+
+    /**
+     * Tree rooted at a center if it is cached, without computing it or counting a hit or miss
+     * @param center the center
+     * @return the tree, or null if it is not cached
+     */
+    public synchronized ShortestPathTree<V> cached(V center) {
+        return trees.get(center);
+    }
+
+    /**
+     * Cache a tree computed elsewhere, evicting the least recently used trees if the budget is exceeded
+     * @param center the tree's root
+     * @param tree the tree, which must not be changed while it is cached
+     */
+    public synchronized void put(V center, ShortestPathTree<V> tree) {
+        ShortestPathTree<V> old = trees.put(center, tree);
+        if (old != null) {
+            bytes -= old.memoryBytes();
+        }
+        bytes += tree.memoryBytes();
+        Iterator<Map.Entry<V, ShortestPathTree<V>>> eldest = trees.entrySet().iterator();
+        while (bytes > budget && trees.size() > 1) {
+            ShortestPathTree<V> evicted = eldest.next().getValue();
+            bytes -= evicted.memoryBytes();
+            eldest.remove();
+            evictions++;
+            CLEANER.register(evicted, recycle(evicted.buffers(), this));
+        }
+    }
+
+    /**
+     * Cleaning action that keeps an evicted tree's buffers as a spare once the tree is unreachable; it must not
+     * refer to the tree, or the tree would never become unreachable
+     */
+    private static Runnable recycle(ShortestPathTree.Buffers buffers, TreeCache<?> cache) {
+        return () -> {
+            buffers.clear(); // on the cleaner's thread, so a miss gets them ready to search
+            synchronized (cache) {
+                if (cache.spares.size() < SPARES) cache.spares.add(buffers);
+            }
+        };
+    }
+
+    /**
+     * Forget every cached tree; must be called whenever the graph changes
+     */
+    public synchronized void invalidate() {
+        trees.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return number of cached trees
+     */
+    public synchronized int size() {
+        return trees.size();
+    }
+
+    /**
+     * @return bytes of tree buffers held
+     */
+    public synchronized long memoryBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public synchronized long hits() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that had to run a BFS
+     */
+    public synchronized long misses() {
+        return misses;
+    }
+
+    /**
+     * @return number of trees evicted to stay within the budget
+     */
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of misses that built their tree in the buffers of an evicted one
+     */
+    public synchronized long reuses() {
+        return reuses;
+    }
+
+    /**
+     * Returns a string with the counters.
+     */
+    public synchronized String toString() {
+        return trees.size() + " trees, " + bytes / 1024 + " KiB, " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+                + reuses + " reuses";
+    }
+}